@@ -55,10 +55,12 @@ public class AccountingApi {
     }
 
     @PostMapping("/journal/batch")
-    public ResponseEntity<List<JournalDto>> createJournalEntries(@RequestBody @Valid List<JournalDto> journalDtos) {
+    public ResponseEntity<List<JournalDto>> createJournalEntries(
+            @RequestBody @Valid List<JournalDto> journalDtos,
+            @RequestParam(defaultValue = "false") boolean skipPostedReferences) {
         logger.info("=== ACCOUNTING API ===");
-        logger.info("POST /api/accounting/journal/batch called with {} entries", 
-                   journalDtos != null ? journalDtos.size() : 0);
+        logger.info("POST /api/accounting/journal/batch called with {} entries, skipPostedReferences: {}", 
+                   journalDtos != null ? journalDtos.size() : 0, skipPostedReferences);
 
         try {
             if (journalDtos == null || journalDtos.isEmpty()) {
@@ -66,7 +68,7 @@ public class AccountingApi {
                 return ResponseEntity.badRequest().build();
             }
 
-            List<Journal> createdJournals = registerJournal.registerJournalEntries(journalDtos);
+            List<Journal> createdJournals = registerJournal.registerJournalEntries(journalDtos, skipPostedReferences);
             List<JournalDto> responseDtos = createdJournals.stream()
                     .map(journal -> registerJournal.convertToDto(journal))
                     .collect(Collectors.toList());
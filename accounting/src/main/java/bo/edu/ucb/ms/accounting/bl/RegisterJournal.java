@@ -1,5 +1,8 @@
 package bo.edu.ucb.ms.accounting.bl;
 
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
@@ -8,21 +11,48 @@ import org.springframework.transaction.annotation.Transactional;
 import bo.edu.ucb.ms.accounting.dto.JournalDto;
 import bo.edu.ucb.ms.accounting.entity.Journal;
 import bo.edu.ucb.ms.accounting.repository.JournalRepository;
+import bo.edu.ucb.ms.accounting.repository.PostedReferenceRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 public class RegisterJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(RegisterJournal.class);
     
     @Autowired
     private JournalRepository journalRepository;
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Autowired
+    private PostedReferenceRepository postedReferenceRepository;
+
+    // journal_seq is created at 1 by ddl-auto; on an existing database it must start past the
+    // journal IDs already there, before the web server takes the first batch
+    @PostConstruct
+    public void advanceIdSequence() {
+        Long sequenceValue = journalRepository.advanceIdSequence();
+        if (sequenceValue != null) {
+            logger.info("journal_seq advanced past the existing journal IDs to {}", sequenceValue);
+        }
+    }
     
     @Transactional(propagation = Propagation.REQUIRED)
     public Journal registerJournal(JournalDto journalDto) {
+        validateJournalDto(journalDto);
+        
+        // Guardar en la base de datos
+        return journalRepository.save(buildJournal(journalDto));
+    }
+
+    private void validateJournalDto(JournalDto journalDto) {
         // Validaciones básicas
         if (journalDto == null) {
             throw new IllegalArgumentException("JournalDto cannot be null");
@@ -48,7 +78,9 @@ public class RegisterJournal {
             (!journalDto.getBalanceType().equals("D") && !journalDto.getBalanceType().equals("C"))) {
             throw new IllegalArgumentException("Balance type must be 'D' (Debit) or 'C' (Credit)");
         }
-        
+    }
+
+    private Journal buildJournal(JournalDto journalDto) {
         // CreatedBy is optional, use default if not provided
         String createdBy = (journalDto.getCreatedBy() != null && !journalDto.getCreatedBy().trim().isEmpty()) 
             ? journalDto.getCreatedBy().trim() 
@@ -108,26 +140,32 @@ public class RegisterJournal {
         journal.setExchangeRate(BigDecimal.ONE);
         journal.setStatus(Journal.Status.draft);
         
-        // Guardar en la base de datos
-        return journalRepository.save(journal);
+        return journal;
     }
     
     /**
-     * Genera un número único para la entrada de diario
-     * Formato: JE-YYYYMMDD-HHMMSS
+     * Genera un número único para la entrada de diario, sin colisiones entre hilos ni instancias
+     * Formato: JE- + ID Snowflake en base 36 (13 caracteres)
      */
     private String generateJournalEntryNumber() {
-        LocalDate now = LocalDate.now();
-        long timestamp = System.currentTimeMillis() % 100000; // últimos 5 dígitos del timestamp
-        return String.format("JE-%s-%05d", 
-            now.format(DateTimeFormatter.ofPattern("yyyyMMdd")), 
-            timestamp);
+        return snowflakeIdGenerator.nextId("JE-");
     }
     
     // MICROSERVICES-ONLY METHODS (NOT IN MONOLITH) - Required for distributed transactions
     
     @Transactional(propagation = Propagation.REQUIRED)
     public List<Journal> registerJournalEntries(List<JournalDto> journalDtos) {
+        return registerJournalEntries(journalDtos, false);
+    }
+
+    /**
+     * @param skipPostedReferences When true, entries are posted once per reference number: entries
+     *                             of a reference already posted this way are skipped, so the caller
+     *                             can safely send the same batch again
+     * @return The entries created, without the skipped ones
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<Journal> registerJournalEntries(List<JournalDto> journalDtos, boolean skipPostedReferences) {
         System.out.println("=== ACCOUNTING SERVICE - MICROSERVICES ONLY ===");
         System.out.println("RegisterJournal.registerJournalEntries called with " + 
                            (journalDtos != null ? journalDtos.size() : 0) + " entries");
@@ -137,14 +175,31 @@ public class RegisterJournal {
             throw new IllegalArgumentException("Journal entries list cannot be null or empty");
         }
 
-        List<Journal> savedEntries = new ArrayList<>();
+        // The whole batch is validated before anything is written; an invalid entry is answered
+        // with 400, so the caller knows sending it again cannot succeed
+        for (int i = 0; i < journalDtos.size(); i++) {
+            try {
+                validateJournalDto(journalDtos.get(i));
+            } catch (IllegalArgumentException e) {
+                System.out.println("ERROR: Invalid entry in journal entries batch: " + e.getMessage());
+                throw new IllegalArgumentException("Journal entry " + i + ": " + e.getMessage(), e);
+            }
+        }
 
         try {
+            Set<String> skippedReferences = skipPostedReferences ? recordPostedReferences(journalDtos) : Set.of();
+
+            List<Journal> journals = new ArrayList<>();
             for (JournalDto dto : journalDtos) {
-                Journal savedEntry = registerJournal(dto);
-                savedEntries.add(savedEntry);
+                if (!skippedReferences.contains(referenceOf(dto))) {
+                    journals.add(buildJournal(dto));
+                }
             }
 
+            // IDs come from the pooled journal_seq, so the rows go out as batched inserts; flushed
+            // here so that a failing insert is reported like any other error of the batch
+            List<Journal> savedEntries = journalRepository.saveAllAndFlush(journals);
+
             System.out.println("All " + savedEntries.size() + " journal entries registered successfully");
             return savedEntries;
 
@@ -154,6 +209,34 @@ public class RegisterJournal {
         }
     }
 
+    /**
+     * Records the reference numbers of the batch in one statement
+     * @return The references whose entries were already posted, to be skipped
+     */
+    private Set<String> recordPostedReferences(List<JournalDto> journalDtos) {
+        // Entries without a reference number are always posted
+        Set<String> references = new TreeSet<>();
+        for (JournalDto dto : journalDtos) {
+            if (!referenceOf(dto).isEmpty()) {
+                references.add(referenceOf(dto));
+            }
+        }
+        if (references.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<String> alreadyPosted = new TreeSet<>(references);
+        postedReferenceRepository.insertAbsent(references.toArray(new String[0])).forEach(alreadyPosted::remove);
+        if (!alreadyPosted.isEmpty()) {
+            System.out.println("Journal entries of references " + alreadyPosted + " were already posted, skipping");
+        }
+        return alreadyPosted;
+    }
+
+    private String referenceOf(JournalDto journalDto) {
+        return journalDto.getReferenceNumber() != null ? journalDto.getReferenceNumber().trim() : "";
+    }
+
     @Transactional(readOnly = true)
     public Journal getJournalById(Long journalId) {
         System.out.println("=== ACCOUNTING SERVICE - MICROSERVICES ONLY ===");
@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 public class Journal {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "journal_seq")
+    @SequenceGenerator(name = "journal_seq", sequenceName = "journal_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "journal_entry_number", unique = true, nullable = false, length = 20)
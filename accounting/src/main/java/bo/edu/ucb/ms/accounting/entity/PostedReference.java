@@ -0,0 +1,49 @@
+package bo.edu.ucb.ms.accounting.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Reference number whose journal entries were posted by a batch sent with skipPostedReferences.
+ * The same batch sent again (a retried delivery of the sales journal outbox) finds its rows
+ * here and does not post the entries twice.
+ */
+@Entity
+@Table(name = "posted_reference")
+public class PostedReference {
+
+    @Id
+    @Column(name = "reference_number", length = 50)
+    private String referenceNumber;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Default constructor
+    public PostedReference() {}
+
+    // Getters and Setters
+    public String getReferenceNumber() {
+        return referenceNumber;
+    }
+
+    public void setReferenceNumber(String referenceNumber) {
+        this.referenceNumber = referenceNumber;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PostedReference{" +
+                "referenceNumber='" + referenceNumber + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
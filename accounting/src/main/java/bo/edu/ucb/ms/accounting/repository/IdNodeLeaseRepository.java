@@ -0,0 +1,51 @@
+package bo.edu.ucb.ms.accounting.repository;
+
+import bo.edu.ucb.ms.accounting.entity.IdNodeLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdNodeLeaseRepository extends JpaRepository<IdNodeLease, Integer> {
+
+    Optional<IdNodeLease> findFirstByOwner(String owner);
+
+    /**
+     * Takes over the lowest node ID whose lease has expired (its instance is gone)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE id_node_lease SET owner = :owner, lease_until = :leaseUntil " +
+                   "WHERE node_id = (SELECT node_id FROM id_node_lease WHERE lease_until < :now " +
+                   "                 ORDER BY node_id LIMIT 1 FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int claimExpiredNode(@Param("owner") String owner,
+                         @Param("leaseUntil") LocalDateTime leaseUntil,
+                         @Param("now") LocalDateTime now);
+
+    /**
+     * Creates the next node ID after the highest one in use; a concurrent claim of the same ID
+     * inserts nothing and the caller simply tries again
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO id_node_lease (node_id, owner, lease_until) " +
+                   "SELECT COALESCE(MAX(node_id) + 1, 0), :owner, :leaseUntil FROM id_node_lease " +
+                   "HAVING COALESCE(MAX(node_id) + 1, 0) <= :maxNodeId " +
+                   "ON CONFLICT (node_id) DO NOTHING", nativeQuery = true)
+    int claimNewNode(@Param("owner") String owner,
+                     @Param("leaseUntil") LocalDateTime leaseUntil,
+                     @Param("maxNodeId") int maxNodeId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdNodeLease l SET l.leaseUntil = :leaseUntil WHERE l.nodeId = :nodeId AND l.owner = :owner")
+    int renewLease(@Param("nodeId") Integer nodeId,
+                   @Param("owner") String owner,
+                   @Param("leaseUntil") LocalDateTime leaseUntil);
+}
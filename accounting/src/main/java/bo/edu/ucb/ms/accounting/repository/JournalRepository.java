@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -68,4 +69,14 @@ public interface JournalRepository extends JpaRepository<Journal, Long> {
 
     @Query("SELECT j FROM Journal j WHERE j.createdAt >= :startDateTime ORDER BY j.createdAt DESC")
     List<Journal> findRecentEntries(@Param("startDateTime") LocalDateTime startDateTime);
-}
\ No newline at end of file
+
+    /**
+     * Moves journal_seq past the highest journal ID when existing rows are not covered by it
+     * (entries inserted with IDENTITY before the sequence existed). Never moves it back.
+     * @return The new sequence value, or null if it was already ahead
+     */
+    @Transactional
+    @Query(value = "SELECT setval('journal_seq', m.max_id) FROM (SELECT MAX(id) AS max_id FROM journal) m " +
+                   "WHERE m.max_id > (SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM journal_seq)", nativeQuery = true)
+    Long advanceIdSequence();
+}
@@ -0,0 +1,24 @@
+package bo.edu.ucb.ms.accounting.repository;
+
+import bo.edu.ucb.ms.accounting.entity.PostedReference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PostedReferenceRepository extends JpaRepository<PostedReference, String> {
+
+    /**
+     * Records the reference numbers that are not there yet, in one statement. A concurrent batch
+     * with a shared reference waits on the row lock of the first one and then sees the duplicate;
+     * callers pass them sorted so that two such batches lock in the same order.
+     * @return The reference numbers that are new; the entries of the others were already posted
+     */
+    @Query(value = "INSERT INTO posted_reference (reference_number, created_at) " +
+                   "SELECT reference_number, NOW() FROM unnest(CAST(:referenceNumbers AS varchar[])) AS r(reference_number) " +
+                   "ON CONFLICT (reference_number) DO NOTHING RETURNING reference_number", nativeQuery = true)
+    List<String> insertAbsent(@Param("referenceNumbers") String[] referenceNumbers);
+}
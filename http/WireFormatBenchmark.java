@@ -0,0 +1,138 @@
+import bo.edu.ucb.ms.sales.dto.JournalDto;
+import bo.edu.ucb.ms.sales.dto.ProductDto;
+import bo.edu.ucb.ms.sales.dto.StockLineDto;
+import bo.edu.ucb.ms.sales.dto.StockReservationDto;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON vs Smile for the payloads sales exchanges with warehouse and accounting, serialized
+ * with the sales DTOs and the same Jackson setup as the services (JavaTimeModule, ISO dates).
+ * Reports payload size and CPU time per encode and decode on this thread. Run through
+ * benchmark-wire-format.sh, which builds the classpath.
+ */
+public class WireFormatBenchmark {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        ObjectMapper json = JsonMapper.builder().findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+        ObjectMapper smile = SmileMapper.builder().findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+        System.out.printf("%-42s %8s %8s %7s %10s %10s %7s %10s %10s %7s%n", "payload", "json B", "smile B", "saved",
+                "json enc", "smile enc", "saved", "json dec", "smile dec", "saved");
+
+        run("POST /journal/batch (" + lines * 2 + " entries)", journalBatch(lines),
+                new TypeReference<List<JournalDto>>() {}, json, smile, iterations);
+        run("POST /stock/reservations/batch request", stockLines(lines),
+                new TypeReference<List<StockLineDto>>() {}, json, smile, iterations);
+        run("POST /stock/reservations/batch response", reservations(lines),
+                new TypeReference<List<StockReservationDto>>() {}, json, smile, iterations);
+        run("GET /products/{id}", product(1), new TypeReference<ProductDto>() {}, json, smile, iterations * 10);
+        System.out.println("enc/dec: CPU microseconds per payload");
+    }
+
+    private static <T> void run(String name, T payload, TypeReference<T> type, ObjectMapper json, ObjectMapper smile,
+                                int iterations) throws Exception {
+        byte[] jsonBytes = json.writeValueAsBytes(payload);
+        byte[] smileBytes = smile.writeValueAsBytes(payload);
+        // Same values after a round trip through either format
+        if (!json.writeValueAsString(smile.readValue(smileBytes, type)).equals(new String(jsonBytes))) {
+            throw new IllegalStateException("Smile round trip changed " + name);
+        }
+
+        double jsonEncode = cpuMicros(iterations, () -> json.writeValueAsBytes(payload));
+        double smileEncode = cpuMicros(iterations, () -> smile.writeValueAsBytes(payload));
+        double jsonDecode = cpuMicros(iterations, () -> json.readValue(jsonBytes, type));
+        double smileDecode = cpuMicros(iterations, () -> smile.readValue(smileBytes, type));
+
+        System.out.printf("%-42s %8d %8d %6.1f%% %10.2f %10.2f %6.1f%% %10.2f %10.2f %6.1f%%%n", name,
+                jsonBytes.length, smileBytes.length, saved(jsonBytes.length, smileBytes.length),
+                jsonEncode, smileEncode, saved(jsonEncode, smileEncode),
+                jsonDecode, smileDecode, saved(jsonDecode, smileDecode));
+    }
+
+    // Warm-up round first, then the measured one
+    private static double cpuMicros(int iterations, Work work) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            work.run();
+        }
+        long start = THREADS.getCurrentThreadCpuTime();
+        for (int i = 0; i < iterations; i++) {
+            work.run();
+        }
+        return (THREADS.getCurrentThreadCpuTime() - start) / 1000.0 / iterations;
+    }
+
+    private static double saved(double before, double after) {
+        return 100.0 * (before - after) / before;
+    }
+
+    // Same entries as CompleteSaleBl.createJournalEntries, one debit and one credit per sale
+    private static List<JournalDto> journalBatch(int sales) {
+        List<JournalDto> entries = new ArrayList<>();
+        for (int i = 0; i < sales; i++) {
+            String saleNumber = "SALE-" + (1_700_000_000_000L + i);
+            BigDecimal amount = new BigDecimal("1234.50").add(BigDecimal.valueOf(i));
+            entries.add(journalEntry("1200", "Accounts Receivable", "D", amount, saleNumber));
+            entries.add(journalEntry("4100", "Sales Revenue", "C", amount, saleNumber));
+        }
+        return entries;
+    }
+
+    private static JournalDto journalEntry(String accountCode, String accountName, String balanceType,
+                                           BigDecimal amount, String saleNumber) {
+        JournalDto entry = new JournalDto();
+        entry.setAccountCode(accountCode);
+        entry.setAccountName(accountName);
+        entry.setBalanceType(balanceType);
+        entry.setAmount(amount);
+        entry.setDescription("Sale of products");
+        entry.setReferenceNumber(saleNumber);
+        entry.setCreatedBy("SALES_SERVICE");
+        entry.setTransactionDate(LocalDate.of(2025, 1, 15));
+        return entry;
+    }
+
+    private static List<StockLineDto> stockLines(int lines) {
+        List<StockLineDto> stockLines = new ArrayList<>();
+        for (int i = 1; i <= lines; i++) {
+            stockLines.add(new StockLineDto(i, 1 + i % 5));
+        }
+        return stockLines;
+    }
+
+    private static List<StockReservationDto> reservations(int lines) {
+        List<StockReservationDto> reservations = new ArrayList<>();
+        for (int i = 1; i <= lines; i++) {
+            reservations.add(new StockReservationDto(i, "Product " + i, new BigDecimal("19.99").add(BigDecimal.valueOf(i)),
+                    1 + i % 5, 500 - i));
+        }
+        return reservations;
+    }
+
+    private static ProductDto product(int id) {
+        ProductDto product = new ProductDto("Product " + id, new BigDecimal("19.99"), 500);
+        product.setId(id);
+        return product;
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+}
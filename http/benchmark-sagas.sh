@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# Compares the saga modes of the sales service under many concurrent sales. Run it once per
+# mode against the same sales instance setup:
+#
+#   platform: mvn spring-boot:run
+#   virtual:  mvn -P java21 spring-boot:run -Dspring-boot.run.arguments=--spring.threads.virtual.enabled=true
+#   reactive: mvn spring-boot:run -Dspring-boot.run.arguments=--sales.saga.mode=reactive
+#
+# Usage: ./benchmark-sagas.sh <sales-base-url> [concurrency] [requests] [product-id]
+#   e.g. ./benchmark-sagas.sh http://localhost:54321 1000 20000 1
+#
+# Requires hey (https://github.com/rakyll/hey). The product needs at least <requests> units of
+# stock, each request sells one unit.
+
+set -euo pipefail
+
+SALES_URL=${1:?"sales base URL required, e.g. http://localhost:54321"}
+CONCURRENCY=${2:-1000}
+REQUESTS=${3:-20000}
+PRODUCT_ID=${4:-1}
+
+metric() {
+    curl -s "$SALES_URL/actuator/metrics/$1" | grep -o '"value":[0-9.E+-]*' | head -1 | cut -d: -f2
+}
+
+echo "=== Sales saga benchmark: $REQUESTS requests, $CONCURRENCY concurrent ==="
+echo "Live threads before: $(metric jvm.threads.live)"
+
+hey -n "$REQUESTS" -c "$CONCURRENCY" -m POST \
+    -H "Content-Type: application/json" \
+    -d "{\"id\": $PRODUCT_ID, \"name\": \"Benchmark\", \"price\": 10.00, \"stockQuantity\": 1}" \
+    "$SALES_URL/api/sales?quantity=1"
+
+echo "Live threads after:  $(metric jvm.threads.live)"
+echo "Peak threads:        $(metric jvm.threads.peak)"
+echo "Pending connections: $(metric hikaricp.connections.pending)"
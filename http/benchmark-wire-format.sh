@@ -0,0 +1,52 @@
+#!/usr/bin/env bash
+# Compares the JSON and Smile wire formats of the internal calls (sales -> warehouse/accounting).
+#
+# 1. Serialization: encodes and decodes the /journal/batch and stock endpoint payloads with the
+#    sales DTOs in both formats and reports payload size and CPU time per payload.
+# 2. Live (optional, with base URLs): asks running services for the same resource as JSON and as
+#    Smile and compares the response sizes, which also checks that negotiation works.
+#
+# Usage: ./benchmark-wire-format.sh [iterations] [lines] [warehouse-base-url product-id] [accounting-base-url sale-number]
+#   e.g. ./benchmark-wire-format.sh 20000 50
+#        ./benchmark-wire-format.sh 20000 50 http://localhost:54321 1 http://localhost:54322 SALE-1700000000000
+#
+# Requires a JDK 17+ and Maven; builds the sales module to get the DTOs and Jackson on the classpath.
+
+set -euo pipefail
+
+ITERATIONS=${1:-20000}
+LINES=${2:-50}
+WAREHOUSE_URL=${3:-}
+PRODUCT_ID=${4:-1}
+ACCOUNTING_URL=${5:-}
+SALE_NUMBER=${6:-}
+
+HERE=$(cd "$(dirname "$0")" && pwd)
+SALES_DIR="$HERE/../sales"
+CLASSPATH_FILE=$(mktemp)
+trap 'rm -f "$CLASSPATH_FILE"' EXIT
+
+mvn -q -f "$SALES_DIR/pom.xml" compile dependency:build-classpath -Dmdep.outputFile="$CLASSPATH_FILE"
+
+echo "=== Serialization: $ITERATIONS iterations, $LINES lines per batch ==="
+java -cp "$SALES_DIR/target/classes:$(cat "$CLASSPATH_FILE")" "$HERE/WireFormatBenchmark.java" "$ITERATIONS" "$LINES"
+
+size() {
+    curl -s -o /dev/null -w '%{size_download} bytes, %{content_type}' -H "Accept: $2" "$1"
+}
+
+compare() {
+    echo "GET $1"
+    echo "  json:  $(size "$1" application/json)"
+    echo "  smile: $(size "$1" application/x-jackson-smile)"
+}
+
+if [ -n "$WAREHOUSE_URL" ] || [ -n "$ACCOUNTING_URL" ]; then
+    echo "=== Live responses ==="
+fi
+if [ -n "$WAREHOUSE_URL" ]; then
+    compare "$WAREHOUSE_URL/api/warehouse/products/$PRODUCT_ID"
+fi
+if [ -n "$ACCOUNTING_URL" ] && [ -n "$SALE_NUMBER" ]; then
+    compare "$ACCOUNTING_URL/api/accounting/journal/transaction/$SALE_NUMBER"
+fi
@@ -1,17 +1,36 @@
 package bo.edu.ucb.ms.sales.api;
 
+import bo.edu.ucb.ms.sales.bl.AsyncSaleBl;
 import bo.edu.ucb.ms.sales.bl.CompleteSaleBl;
+import bo.edu.ucb.ms.sales.bl.IdempotencyBl;
+import bo.edu.ucb.ms.sales.bl.ReactiveCompleteSaleBl;
+import bo.edu.ucb.ms.sales.bl.SaleExportBl;
+import bo.edu.ucb.ms.sales.bl.SaleRollupBl;
+import bo.edu.ucb.ms.sales.dto.CartSaleDto;
+import bo.edu.ucb.ms.sales.dto.CartSaleRequestDto;
 import bo.edu.ucb.ms.sales.dto.SaleDto;
 import bo.edu.ucb.ms.sales.dto.ProductDto;
+import bo.edu.ucb.ms.sales.dto.SagaStatusDto;
+import bo.edu.ucb.ms.sales.dto.SalesSummaryDto;
 import bo.edu.ucb.ms.sales.entity.Sale;
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/api/sales")
@@ -22,18 +41,66 @@ public class SalesApi {
     @Autowired
     private CompleteSaleBl completeSaleBl;
 
+    @Autowired
+    private AsyncSaleBl asyncSaleBl;
+
+    @Autowired
+    private IdempotencyBl idempotencyBl;
+
+    @Autowired
+    private SaleExportBl saleExportBl;
+
+    @Autowired
+    private SaleRollupBl saleRollupBl;
+
+    // Only present with sales.saga.mode=reactive
+    @Autowired(required = false)
+    private ReactiveCompleteSaleBl reactiveCompleteSaleBl;
+
     @PostMapping
-    public ResponseEntity<SaleDto> createSale(@RequestBody @Valid ProductDto productDto, 
-                                             @RequestParam(defaultValue = "1") Integer quantity) {
+    public Mono<ResponseEntity<SaleDto>> createSale(@RequestBody @Valid ProductDto productDto, 
+                                                    @RequestParam(defaultValue = "1") Integer quantity,
+                                                    @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         logger.info("=== SALES API ===");
         logger.info("POST /api/sales called with productDto: {} and quantity: {}", productDto, quantity);
 
+        // Idempotent requests always take the blocking saga, IdempotencyBl waits on its result
+        if (reactiveCompleteSaleBl == null || idempotencyKey != null || quantity <= 0) {
+            return Mono.just(createSaleBlocking(productDto, quantity, idempotencyKey));
+        }
+
+        // Reactive saga: the request thread is released while warehouse and accounting are called
+        return reactiveCompleteSaleBl.createAndSaveSaleWithProductDtoPrice(productDto, quantity)
+                .map(createdSale -> {
+                    SaleDto saleDto = convertToDto(createdSale);
+                    logger.info("Sale created successfully (reactive saga): {}", saleDto);
+                    return ResponseEntity.status(HttpStatus.CREATED).body(saleDto);
+                })
+                .onErrorResume(RuntimeException.class, e -> {
+                    logger.error("Error creating sale", e);
+                    return Mono.just(ResponseEntity.status(resolveSagaErrorStatus(e)).<SaleDto>build());
+                });
+    }
+
+    private ResponseEntity<SaleDto> createSaleBlocking(ProductDto productDto, Integer quantity, String idempotencyKey) {
         try {
             if (quantity <= 0) {
                 logger.warn("Invalid quantity provided: {}", quantity);
                 return ResponseEntity.badRequest().build();
             }
 
+            if (idempotencyKey != null) {
+                // A retry with the same key gets the original sale without running the saga again
+                IdempotencyBl.IdempotentSale idempotentSale = idempotencyBl.execute(idempotencyKey, productDto, quantity,
+                        () -> completeSaleBl.createAndSaveSaleWithProductDtoPrice(productDto, quantity, idempotencyKey));
+                SaleDto saleDto = convertToDto(idempotentSale.getSale());
+
+                logger.info("Sale for Idempotency-Key {} (replayed: {}): {}", idempotencyKey, idempotentSale.isReplayed(), saleDto);
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .header("Idempotent-Replayed", String.valueOf(idempotentSale.isReplayed()))
+                        .body(saleDto);
+            }
+
             // Execute SAGA orchestration using price from ProductDto (like original monolith)
             Sale createdSale = completeSaleBl.createAndSaveSaleWithProductDtoPrice(productDto, quantity);
             
@@ -43,27 +110,185 @@ public class SalesApi {
             logger.info("Sale created successfully: {}", saleDto);
             return ResponseEntity.status(HttpStatus.CREATED).body(saleDto);
 
+        } catch (IdempotencyBl.IdempotencyKeyInUseException e) {
+            logger.warn(e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).header("Retry-After", "1").build();
+        } catch (IdempotencyBl.IdempotencyKeyMismatchException e) {
+            logger.warn(e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid sale request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (RuntimeException e) {
             logger.error("Error creating sale", e);
-            
-            if (e.getMessage().contains("not found")) {
+            return ResponseEntity.status(resolveSagaErrorStatus(e)).build();
+        } catch (Exception e) {
+            logger.error("Unexpected error creating sale", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Asynchronous variant of POST /api/sales: answers 202 with a saga ID right away and runs
+     * the saga on the bounded saga executor. Poll GET /api/sales/saga/{sagaId} for the result.
+     * Idempotency-Key is not supported here (400): a retried submission would start a second saga.
+     */
+    @PostMapping(params = "async=true")
+    public ResponseEntity<SagaStatusDto> createSaleAsync(@RequestBody @Valid ProductDto productDto,
+                                                         @RequestParam(defaultValue = "1") Integer quantity,
+                                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        logger.info("=== SALES API ===");
+        logger.info("POST /api/sales?async=true called with productDto: {} and quantity: {}", productDto, quantity);
+
+        if (idempotencyKey != null) {
+            logger.warn("Idempotency-Key {} sent with async=true, use the synchronous POST /api/sales", idempotencyKey);
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (quantity <= 0) {
+            logger.warn("Invalid quantity provided: {}", quantity);
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            SagaStatusDto sagaStatus = asyncSaleBl.submitSale(productDto, quantity);
+
+            logger.info("Sale saga accepted: {}", sagaStatus);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/sales/saga/" + sagaStatus.getSagaId()))
+                    .body(sagaStatus);
+
+        } catch (TaskRejectedException e) {
+            logger.warn("Saga executor saturated, rejecting sale");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+        } catch (Exception e) {
+            logger.error("Unexpected error submitting sale saga", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/saga/{sagaId}")
+    public ResponseEntity<SagaStatusDto> getSagaStatus(@PathVariable String sagaId) {
+        logger.info("=== SALES API ===");
+        logger.info("GET /api/sales/saga/{} called", sagaId);
+
+        SagaStatusDto sagaStatus = asyncSaleBl.getSagaStatus(sagaId);
+        if (sagaStatus == null) {
+            logger.warn("Saga not found with id: {}", sagaId);
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(sagaStatus);
+    }
+
+    @PostMapping("/cart")
+    public ResponseEntity<CartSaleDto> createCartSale(@RequestBody @Valid CartSaleRequestDto cartSaleRequestDto) {
+        logger.info("=== SALES API ===");
+        logger.info("POST /api/sales/cart called with {} lines", cartSaleRequestDto.getLines().size());
+
+        try {
+            List<Sale> createdSales = completeSaleBl.createAndSaveCartSale(cartSaleRequestDto.getLines());
+
+            List<SaleDto> saleDtos = new ArrayList<>();
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            for (Sale sale : createdSales) {
+                saleDtos.add(convertToDto(sale));
+                totalAmount = totalAmount.add(sale.getTotalAmount());
+            }
+            CartSaleDto cartSaleDto = new CartSaleDto(saleDtos, totalAmount);
+
+            logger.info("Cart sale created successfully: {} sales, total {}", saleDtos.size(), totalAmount);
+            return ResponseEntity.status(HttpStatus.CREATED).body(cartSaleDto);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid cart provided: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
+            logger.error("Error creating cart sale", e);
+            return ResponseEntity.status(resolveSagaErrorStatus(e)).build();
+        } catch (Exception e) {
+            logger.error("Unexpected error creating cart sale", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Streams all matching sales as NDJSON (default) or CSV, in ID order and with constant
+     * memory. A broken download can be resumed with afterId = last ID received.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportSales(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(required = false) Integer productId,
+            @RequestParam(required = false) String paymentStatus,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        logger.info("=== SALES API ===");
+        logger.info("GET /api/sales/export called with format: {}, afterId: {}", format, afterId);
+
+        SaleExportBl.ExportFormat exportFormat;
+        try {
+            exportFormat = SaleExportBl.ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid export format: {}", format);
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Written by an MVC async thread after this method returns; the status is already sent then
+        StreamingResponseBody body = outputStream -> saleExportBl.export(
+                exportFormat, afterId, productId, paymentStatus, startDate, endDate, outputStream);
+
+        boolean csv = exportFormat == SaleExportBl.ExportFormat.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sales." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
+    /**
+     * Dashboard figures for [startDate, endDate), answered from the daily rollups; endDate
+     * defaults to now
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<SalesSummaryDto> getSalesSummary(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        logger.info("=== SALES API ===");
+        logger.info("GET /api/sales/summary called from {} to {}", startDate, endDate);
+
+        try {
+            SalesSummaryDto summary = saleRollupBl.summarize(startDate, endDate != null ? endDate : LocalDateTime.now());
+            return ResponseEntity.ok(summary);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid summary range: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error building sales summary", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PutMapping("/{saleId}/payment-status")
+    public ResponseEntity<SaleDto> updatePaymentStatus(@PathVariable Long saleId,
+                                                       @RequestParam String status) {
+        logger.info("=== SALES API ===");
+        logger.info("PUT /api/sales/{}/payment-status called with status: {}", saleId, status);
+
+        try {
+            Sale sale = completeSaleBl.updatePaymentStatus(saleId, status);
+            if (sale == null) {
+                logger.warn("Sale not found with id: {}", saleId);
                 return ResponseEntity.notFound().build();
-            } else if (e.getMessage().contains("Insufficient stock")) {
-                return ResponseEntity.status(HttpStatus.CONFLICT).build();
-            } else if (e.getMessage().contains("0.99") || 
-                       e.getMessage().contains("rollback trigger") ||
-                       e.getMessage().contains("[422]") ||
-                       e.getMessage().contains("UnprocessableEntity")) {
-                // This is the 0.99 price rollback trigger
-                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
-            } else if (e.getMessage().contains("Load balancer does not contain an instance")) {
-                // Service unavailable (like Accounting Service not running)
-                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
-            } else {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
             }
+            return ResponseEntity.ok(convertToDto(sale));
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid payment status: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
-            logger.error("Unexpected error creating sale", e);
+            logger.error("Error updating payment status of sale: {}", saleId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
@@ -116,6 +341,34 @@ public class SalesApi {
 
 
 
+    private HttpStatus resolveSagaErrorStatus(RuntimeException e) {
+        String message = e.getMessage() != null ? e.getMessage() : "";
+
+        if (message.contains("not found")) {
+            return HttpStatus.NOT_FOUND;
+        } else if (message.contains("Insufficient stock")) {
+            return HttpStatus.CONFLICT;
+        } else if (message.contains("0.99") || 
+                   message.contains("rollback trigger") ||
+                   message.contains("[422]") ||
+                   message.contains("UnprocessableEntity")) {
+            // This is the 0.99 price rollback trigger
+            return HttpStatus.UNPROCESSABLE_ENTITY;
+        } else if (message.contains("Load balancer does not contain an instance") ||
+                   message.contains("LoadBalancer does not contain an instance")) {
+            // Service unavailable (like Accounting Service not running); the second form comes from WebClient
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        } else if (message.contains("does not permit further calls")) {
+            // Circuit breaker open or bulkhead full for warehouse/accounting: shed load right away
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        } else if (message.contains("Deadline exceeded") || message.contains("timed out")) {
+            // The time budget of the sale ran out in some hop
+            return HttpStatus.GATEWAY_TIMEOUT;
+        } else {
+            return HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+    }
+
     private SaleDto convertToDto(Sale sale) {
         SaleDto dto = new SaleDto();
         dto.setId(sale.getId());
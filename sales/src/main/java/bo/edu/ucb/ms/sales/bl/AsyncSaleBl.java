@@ -0,0 +1,112 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.dto.ProductDto;
+import bo.edu.ucb.ms.sales.dto.SagaStatusDto;
+import bo.edu.ucb.ms.sales.entity.Sale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs the sale saga on the bounded saga executor so the request thread is released right
+ * away (202 Accepted). The status of recent sagas is kept in memory for polling.
+ */
+@Service
+public class AsyncSaleBl {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncSaleBl.class);
+
+    @Autowired
+    private CompleteSaleBl completeSaleBl;
+
+    @Autowired
+    @Qualifier("sagaExecutor")
+    private TaskExecutor sagaExecutor;
+
+    @Value("${sales.saga.async.max-tracked-sagas:10000}")
+    private int maxTrackedSagas;
+
+    private final Map<String, SagaStatusDto> sagas = new ConcurrentHashMap<>();
+
+    // Insertion order of the tracked sagas, used to evict the oldest ones
+    private final Queue<String> sagaOrder = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Submits the saga for asynchronous execution
+     * @return The initial (ACCEPTED) status of the saga
+     * @throws TaskRejectedException if the saga executor is saturated
+     */
+    public SagaStatusDto submitSale(ProductDto productDto, Integer quantity) {
+        String sagaId = UUID.randomUUID().toString();
+        SagaStatusDto accepted = new SagaStatusDto(sagaId, SagaStatusDto.Status.ACCEPTED);
+        sagas.put(sagaId, accepted);
+
+        try {
+            sagaExecutor.execute(() -> runSale(sagaId, productDto, quantity));
+        } catch (TaskRejectedException e) {
+            logger.warn("Saga executor saturated, rejecting saga: {}", sagaId);
+            sagas.remove(sagaId);
+            throw e;
+        }
+
+        sagaOrder.add(sagaId);
+        evictOldestSagas();
+
+        logger.info("Saga {} accepted for product: {} quantity: {}", sagaId, productDto.getId(), quantity);
+        return accepted;
+    }
+
+    public SagaStatusDto getSagaStatus(String sagaId) {
+        return sagas.get(sagaId);
+    }
+
+    private void runSale(String sagaId, ProductDto productDto, Integer quantity) {
+        update(sagaId, SagaStatusDto.Status.RUNNING, null, null);
+
+        try {
+            Sale sale = completeSaleBl.createAndSaveSaleWithProductDtoPrice(productDto, quantity);
+            update(sagaId, SagaStatusDto.Status.COMPLETED, sale, null);
+            logger.info("Saga {} completed with sale: {}", sagaId, sale.getSaleNumber());
+        } catch (Exception e) {
+            update(sagaId, SagaStatusDto.Status.FAILED, null, e.getMessage());
+            logger.error("Saga {} failed", sagaId, e);
+        }
+    }
+
+    // Status objects are never mutated once published, every transition stores a new one
+    private void update(String sagaId, SagaStatusDto.Status status, Sale sale, String error) {
+        sagas.computeIfPresent(sagaId, (id, previous) -> {
+            SagaStatusDto next = new SagaStatusDto(id, status);
+            next.setCreatedAt(previous.getCreatedAt());
+            next.setUpdatedAt(LocalDateTime.now());
+            next.setError(error);
+            if (sale != null) {
+                next.setSaleId(sale.getId());
+                next.setSaleNumber(sale.getSaleNumber());
+            }
+            return next;
+        });
+    }
+
+    private void evictOldestSagas() {
+        while (sagas.size() > maxTrackedSagas) {
+            String oldest = sagaOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            sagas.remove(oldest);
+        }
+    }
+}
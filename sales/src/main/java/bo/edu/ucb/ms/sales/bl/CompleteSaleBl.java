@@ -1,20 +1,27 @@
 package bo.edu.ucb.ms.sales.bl;
 
-import bo.edu.ucb.ms.sales.client.AccountingClient;
 import bo.edu.ucb.ms.sales.client.WarehouseClient;
+import bo.edu.ucb.ms.sales.config.RequestDeadline;
 import bo.edu.ucb.ms.sales.dto.ProductDto;
 import bo.edu.ucb.ms.sales.dto.JournalDto;
+import bo.edu.ucb.ms.sales.dto.StockLineDto;
+import bo.edu.ucb.ms.sales.dto.StockReservationDto;
+import bo.edu.ucb.ms.sales.entity.SagaLog;
 import bo.edu.ucb.ms.sales.entity.Sale;
 import bo.edu.ucb.ms.sales.repository.SaleRepository;
+import feign.FeignException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,9 +37,43 @@ public class CompleteSaleBl {
     private WarehouseClient warehouseClient;
 
     @Autowired
-    private AccountingClient accountingClient;
+    private SagaLogBl sagaLogBl;
 
-    @Transactional(rollbackFor = Exception.class)
+    @Autowired
+    private SagaRecoveryBl sagaRecoveryBl;
+
+    @Autowired
+    private SaleBatchWriter saleBatchWriter;
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private SaleRollupBl saleRollupBl;
+
+    @Autowired
+    private SagaMetrics sagaMetrics;
+
+    @Autowired
+    private JournalOutboxBl journalOutboxBl;
+
+    @Autowired
+    private JournalBatcher journalBatcher;
+
+    // Single reserve-and-describe call instead of getProduct + checkStock + reserveStock
+    @Value("${sales.saga.warehouse.reserve-and-describe:true}")
+    private boolean reserveAndDescribe;
+
+    @Value("${sales.cart.max-lines:50}")
+    private int cartMaxLines;
+
+    // Deliberately not @Transactional: no connection is held while warehouse and accounting are called,
+    // DB work happens only in the short transactions of SagaLogBl and saveSalesAndCompleteSaga.
+    // With the journal outbox enabled, accounting is not called at all: the entries are queued
+    // with the sale in saveSalesAndCompleteSaga and posted by JournalOutboxRelay.
     public Sale createAndSaveSale(ProductDto productDto, Integer quantity) {
         logger.info("=== SALES SERVICE - SAGA ORCHESTRATOR ===");
         logger.info("CompleteSaleBl.createAndSaveSale called with productDto: {} and quantity: {}", 
@@ -41,44 +82,70 @@ public class CompleteSaleBl {
         String saleNumber = generateSaleNumber();
         logger.info("Generated sale number: {}", saleNumber);
 
+        List<StockLineDto> stockLines = List.of(new StockLineDto(productDto.getId(), quantity));
+        boolean stockReserved = false;
+        SagaLog sagaLog = null;
         try {
-            // STEP 1: Validate Product and Check Stock (Warehouse Service)
-            logger.info("SAGA STEP 1: Validating product and checking stock");
-            ProductDto validatedProduct = validateProductAndStock(productDto.getId(), quantity);
-            logger.info("Product validated: {}", validatedProduct);
-
-            // STEP 2: Reserve Stock (Warehouse Service)
-            logger.info("SAGA STEP 2: Reserving stock");
-            ProductDto updatedProduct = reserveStock(productDto.getId(), quantity);
-            logger.info("Stock reserved: {}", updatedProduct);
+            BigDecimal unitPrice;
+            if (reserveAndDescribe) {
+                // STEP 1-2: Validate Product and Reserve Stock in one atomic call (Warehouse Service)
+                logger.info("SAGA STEP 1-2: Validating product and reserving stock");
+                StockReservationDto reservation = sagaMetrics.timeStep(SagaMetrics.SAGA_SINGLE, SagaMetrics.STEP_RESERVE,
+                        () -> reserveAndDescribe(productDto.getId(), quantity));
+                stockReserved = true;
+                unitPrice = reservation.getPrice();
+            } else {
+                // STEP 1: Validate Product and Check Stock (Warehouse Service)
+                logger.info("SAGA STEP 1: Validating product and checking stock");
+                ProductDto validatedProduct = sagaMetrics.timeStep(SagaMetrics.SAGA_SINGLE, SagaMetrics.STEP_VALIDATE,
+                        () -> validateProductAndStock(productDto.getId(), quantity));
+                logger.info("Product validated: {}", validatedProduct);
+
+                // STEP 2: Reserve Stock (Warehouse Service)
+                logger.info("SAGA STEP 2: Reserving stock");
+                ProductDto updatedProduct = sagaMetrics.timeStep(SagaMetrics.SAGA_SINGLE, SagaMetrics.STEP_RESERVE,
+                        () -> reserveStock(productDto.getId(), quantity));
+                stockReserved = true;
+                logger.info("Stock reserved: {}", updatedProduct);
+                unitPrice = validatedProduct.getPrice();
+            }
+            sagaLog = sagaMetrics.timeStep(SagaMetrics.SAGA_SINGLE, SagaMetrics.STEP_SAGA_LOG,
+                    () -> RequestDeadline.withoutDeadline(() -> sagaLogBl.recordStockReserved(stockLines, List.of(saleNumber))));
 
             // STEP 3: Create Sale Entity (Sales Service)
             logger.info("SAGA STEP 3: Creating sale entity");
-            Sale sale = createSaleEntity(validatedProduct, quantity, saleNumber);
+            Sale sale = createSaleEntity(productDto.getId(), unitPrice, quantity, saleNumber);
             logger.info("Sale entity created: {}", sale);
 
             // STEP 4: Register Accounting Entries (Accounting Service)
             logger.info("SAGA STEP 4: Registering accounting entries");
             
             // Check for rollback trigger (0.99 price)
-            if (validatedProduct.getPrice().compareTo(new BigDecimal("0.99")) == 0) {
+            if (unitPrice.compareTo(new BigDecimal("0.99")) == 0) {
                 logger.warn("ROLLBACK TRIGGER DETECTED: Price is 0.99, forcing accounting failure for testing");
-                throw new RuntimeException("Accounting service failure simulation (price = 0.99)");
+                throw new SagaStepException(SagaMetrics.STEP_ACCOUNTING, SagaMetrics.REASON_PRICE_ROLLBACK_TRIGGER,
+                        "Accounting service failure simulation (price = 0.99)");
             }
             
-            try {
-                registerSaleInJournal(sale);
-                logger.info("Accounting entries registered successfully");
-            } catch (Exception accountingException) {
-                logger.warn("Accounting service not available, proceeding without accounting entries");
-                logger.warn("This is expected when Accounting Service is not running");
-                // For now, continue without accounting when service is not available
-                // In production, this would require different handling based on business rules
+            if (journalOutboxBl.isEnabled()) {
+                logger.info("Accounting entries queued in the journal outbox with the sale");
+            } else {
+                try {
+                    sagaMetrics.timeStep(SagaMetrics.SAGA_SINGLE, SagaMetrics.STEP_ACCOUNTING, () -> registerSaleInJournal(sale));
+                    logger.info("Accounting entries registered successfully");
+                } catch (Exception accountingException) {
+                    logger.warn("Accounting service not available, proceeding without accounting entries");
+                    logger.warn("This is expected when Accounting Service is not running");
+                    // For now, continue without accounting when service is not available
+                    // In production, this would require different handling based on business rules
+                }
             }
 
             // STEP 5: Save Sale (Sales Service)
             logger.info("SAGA STEP 5: Saving sale to database");
-            Sale savedSale = saleRepository.save(sale);
+            SagaLog recordedSagaLog = sagaLog;
+            Sale savedSale = sagaMetrics.timeStep(SagaMetrics.SAGA_SINGLE, SagaMetrics.STEP_SAVE,
+                    () -> saveSalesAndCompleteSaga(List.of(sale), recordedSagaLog).get(0));
             logger.info("Sale saved successfully: {}", savedSale);
 
             logger.info("=== SAGA COMPLETED SUCCESSFULLY ===");
@@ -86,27 +153,10 @@ public class CompleteSaleBl {
 
         } catch (Exception e) {
             logger.error("=== SAGA FAILED - INITIATING ROLLBACK ===", e);
-            
-            // Rollback compensation: Release reserved stock
-            try {
-                logger.info("SAGA COMPENSATION: Releasing reserved stock for product: {}", productDto.getId());
-                warehouseClient.releaseStock(productDto.getId(), quantity);
-                logger.info("Stock released successfully during rollback");
-            } catch (Exception rollbackException) {
-                logger.error("CRITICAL: Failed to release stock during rollback", rollbackException);
-            }
 
-            // Rollback compensation: Delete any created accounting entries (if service is available)
-            try {
-                logger.info("SAGA COMPENSATION: Deleting accounting entries for transaction: {}", saleNumber);
-                accountingClient.deleteJournalEntriesByTransaction(saleNumber);
-                logger.info("Accounting entries deleted successfully during rollback");
-            } catch (Exception rollbackException) {
-                logger.warn("Accounting service not available for rollback compensation");
-                // This is expected when Accounting Service is not running
-            }
+            sagaMetrics.recordRollback(SagaMetrics.SAGA_SINGLE, e);
+            scheduleCompensation(sagaLog, stockReserved, stockLines, List.of(saleNumber), e);
 
-            logger.error("=== SAGA ROLLBACK COMPLETED ===");
             throw new RuntimeException("Sale creation failed: " + e.getMessage(), e);
         }
     }
@@ -115,13 +165,13 @@ public class CompleteSaleBl {
         logger.info("Validating product {} and checking stock for quantity: {}", productId, quantity);
 
         try {
-            // Get product information
-            ResponseEntity<ProductDto> productResponse = warehouseClient.getProduct(productId);
-            if (!productResponse.getStatusCode().is2xxSuccessful() || productResponse.getBody() == null) {
-                throw new RuntimeException("Product not found with ID: " + productId);
+            // Get product information (catalog fields only, from the cache)
+            ProductDto product = productCatalogCache.getProduct(productId);
+            if (product == null) {
+                throw new SagaStepException(SagaMetrics.STEP_VALIDATE, SagaMetrics.REASON_PRODUCT_NOT_FOUND,
+                        "Product not found with ID: " + productId);
             }
 
-            ProductDto product = productResponse.getBody();
             logger.info("Product retrieved: {}", product);
 
             // Check stock availability
@@ -129,7 +179,7 @@ public class CompleteSaleBl {
                 warehouseClient.checkStockAvailability(productId, quantity);
             
             if (!stockResponse.getStatusCode().is2xxSuccessful() || stockResponse.getBody() == null) {
-                throw new RuntimeException("Unable to check stock availability for product: " + productId);
+                throw new SagaStepException(SagaMetrics.STEP_VALIDATE, null, "Unable to check stock availability for product: " + productId);
             }
 
             Map<String, Object> stockInfo = stockResponse.getBody();
@@ -137,7 +187,7 @@ public class CompleteSaleBl {
             
             if (!hasAvailableStock) {
                 Integer currentStock = (Integer) stockInfo.get("currentStock");
-                throw new RuntimeException(String.format(
+                throw new SagaStepException(SagaMetrics.STEP_VALIDATE, SagaMetrics.REASON_INSUFFICIENT_STOCK, String.format(
                     "Insufficient stock. Required: %d, Available: %d", quantity, currentStock));
             }
 
@@ -146,7 +196,7 @@ public class CompleteSaleBl {
 
         } catch (Exception e) {
             logger.error("Failed to validate product and stock", e);
-            throw new RuntimeException("Product validation failed: " + e.getMessage(), e);
+            throw new SagaStepException(SagaMetrics.STEP_VALIDATE, "Product validation failed: " + e.getMessage(), e);
         }
     }
 
@@ -157,7 +207,7 @@ public class CompleteSaleBl {
             ResponseEntity<ProductDto> response = warehouseClient.reserveStock(productId, quantity);
             
             if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                throw new RuntimeException("Failed to reserve stock for product: " + productId);
+                throw new SagaStepException(SagaMetrics.STEP_RESERVE, null, "Failed to reserve stock for product: " + productId);
             }
 
             ProductDto updatedProduct = response.getBody();
@@ -166,23 +216,51 @@ public class CompleteSaleBl {
 
         } catch (Exception e) {
             logger.error("Failed to reserve stock", e);
-            throw new RuntimeException("Stock reservation failed: " + e.getMessage(), e);
+            throw new SagaStepException(SagaMetrics.STEP_RESERVE, "Stock reservation failed: " + e.getMessage(), e);
+        }
+    }
+
+    private StockReservationDto reserveAndDescribe(Integer productId, Integer quantity) {
+        logger.info("Validating product {} and reserving {} units in a single call", productId, quantity);
+
+        try {
+            ResponseEntity<StockReservationDto> response = warehouseClient.reserveAndDescribe(productId, quantity);
+
+            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+                throw new SagaStepException(SagaMetrics.STEP_RESERVE, null, "Failed to reserve stock for product: " + productId);
+            }
+
+            StockReservationDto reservation = response.getBody();
+            logger.info("Stock reserved successfully: {}", reservation);
+            return reservation;
+
+        } catch (FeignException.NotFound e) {
+            logger.error("Product not found with ID: {}", productId);
+            throw new SagaStepException(SagaMetrics.STEP_RESERVE, SagaMetrics.REASON_PRODUCT_NOT_FOUND,
+                    "Product not found with ID: " + productId, e);
+        } catch (FeignException.Conflict e) {
+            logger.error("Insufficient stock for product: {}", productId);
+            throw new SagaStepException(SagaMetrics.STEP_RESERVE, SagaMetrics.REASON_INSUFFICIENT_STOCK,
+                    "Insufficient stock. Required: " + quantity, e);
+        } catch (Exception e) {
+            logger.error("Failed to validate product and reserve stock", e);
+            throw new SagaStepException(SagaMetrics.STEP_RESERVE, "Stock reservation failed: " + e.getMessage(), e);
         }
     }
 
-    private Sale createSaleEntity(ProductDto product, Integer quantity, String saleNumber) {
+    Sale createSaleEntity(Integer productId, BigDecimal unitPrice, Integer quantity, String saleNumber) {
         logger.info("Creating sale entity for product: {} quantity: {} saleNumber: {}", 
-                   product.getId(), quantity, saleNumber);
+                   productId, quantity, saleNumber);
 
         Sale sale = new Sale();
         sale.setSaleNumber(saleNumber);
-        sale.setProductId(product.getId());
+        sale.setProductId(productId);
         sale.setQuantity(quantity);
-        sale.setUnitPrice(product.getPrice());
+        sale.setUnitPrice(unitPrice);
         sale.setPaymentStatus("pending");
 
         // Calculate total amount
-        BigDecimal totalAmount = product.getPrice().multiply(BigDecimal.valueOf(quantity));
+        BigDecimal totalAmount = unitPrice.multiply(BigDecimal.valueOf(quantity));
         sale.setTotalAmount(totalAmount);
 
         logger.info("Sale entity prepared: {}", sale);
@@ -196,21 +274,23 @@ public class CompleteSaleBl {
             List<JournalDto> journalEntries = createJournalEntries(sale);
             logger.info("Created {} journal entries for sale: {}", journalEntries.size(), sale.getSaleNumber());
 
-            ResponseEntity<List<JournalDto>> response = accountingClient.createJournalEntries(journalEntries);
-            
-            if (!response.getStatusCode().is2xxSuccessful()) {
-                throw new RuntimeException("Failed to create journal entries");
-            }
+            // Merged with the entries of concurrent sagas into one accounting call
+            journalBatcher.post(journalEntries);
 
             logger.info("Journal entries registered successfully");
 
         } catch (Exception e) {
             logger.error("Failed to register sale in journal", e);
-            throw new RuntimeException("Accounting registration failed: " + e.getMessage(), e);
+            throw new SagaStepException(SagaMetrics.STEP_ACCOUNTING, "Accounting registration failed: " + e.getMessage(), e);
         }
     }
 
-    private List<JournalDto> createJournalEntries(Sale sale) {
+    List<JournalDto> createJournalEntries(Sale sale) {
+        return createJournalEntries(sale.getSaleNumber(), sale.getTotalAmount(), sale.getSaleDate());
+    }
+
+    // Also used by JournalOutboxRelay, for sales posted after they were saved
+    List<JournalDto> createJournalEntries(String saleNumber, BigDecimal amount, LocalDate transactionDate) {
         List<JournalDto> entries = new ArrayList<>();
 
         // Debit: Accounts Receivable
@@ -218,10 +298,11 @@ public class CompleteSaleBl {
         debitEntry.setAccountCode("1200");
         debitEntry.setAccountName("Accounts Receivable");
         debitEntry.setBalanceType("D");
-        debitEntry.setAmount(sale.getTotalAmount());
+        debitEntry.setAmount(amount);
         debitEntry.setDescription("Sale of products");
-        debitEntry.setReferenceNumber(sale.getSaleNumber());
+        debitEntry.setReferenceNumber(saleNumber);
         debitEntry.setCreatedBy("SALES_SERVICE");
+        debitEntry.setTransactionDate(transactionDate);
         entries.add(debitEntry);
 
         // Credit: Sales Revenue
@@ -229,10 +310,11 @@ public class CompleteSaleBl {
         creditEntry.setAccountCode("4100");
         creditEntry.setAccountName("Sales Revenue");
         creditEntry.setBalanceType("C");
-        creditEntry.setAmount(sale.getTotalAmount());
+        creditEntry.setAmount(amount);
         creditEntry.setDescription("Sale of products");
-        creditEntry.setReferenceNumber(sale.getSaleNumber());
+        creditEntry.setReferenceNumber(saleNumber);
         creditEntry.setCreatedBy("SALES_SERVICE");
+        creditEntry.setTransactionDate(transactionDate);
         entries.add(creditEntry);
 
         return entries;
@@ -242,20 +324,20 @@ public class CompleteSaleBl {
         logger.info("Validating product {} and attempting to reserve {} units", productId, quantity);
 
         try {
-            // Get product information to verify it exists
-            ResponseEntity<ProductDto> productResponse = warehouseClient.getProduct(productId);
-            if (!productResponse.getStatusCode().is2xxSuccessful() || productResponse.getBody() == null) {
-                throw new RuntimeException("Product not found with ID: " + productId);
+            // Get product information to verify it exists (from the cache)
+            ProductDto product = productCatalogCache.getProduct(productId);
+            if (product == null) {
+                throw new SagaStepException(SagaMetrics.STEP_RESERVE, SagaMetrics.REASON_PRODUCT_NOT_FOUND,
+                        "Product not found with ID: " + productId);
             }
 
-            ProductDto product = productResponse.getBody();
             logger.info("Product exists: {}", product);
 
             // Attempt to reserve stock directly (this will validate availability atomically)
             ResponseEntity<ProductDto> reserveResponse = warehouseClient.reserveStock(productId, quantity);
             
             if (!reserveResponse.getStatusCode().is2xxSuccessful() || reserveResponse.getBody() == null) {
-                throw new RuntimeException("Failed to reserve stock for product: " + productId);
+                throw new SagaStepException(SagaMetrics.STEP_RESERVE, null, "Failed to reserve stock for product: " + productId);
             }
 
             ProductDto updatedProduct = reserveResponse.getBody();
@@ -264,15 +346,194 @@ public class CompleteSaleBl {
 
         } catch (Exception e) {
             logger.error("Failed to validate product and reserve stock", e);
-            if (e.getMessage().contains("Insufficient stock") || e.getMessage().contains("[409]")) {
-                throw new RuntimeException("Insufficient stock. Required: " + quantity + ", Available: 0", e);
+            if (e instanceof FeignException.Conflict) {
+                throw new SagaStepException(SagaMetrics.STEP_RESERVE, SagaMetrics.REASON_INSUFFICIENT_STOCK,
+                        "Insufficient stock. Required: " + quantity + ", Available: 0", e);
+            }
+            throw new SagaStepException(SagaMetrics.STEP_RESERVE, "Product validation and stock reservation failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Snowflake ID, unique across instances and threads: SALE- + 13 base-36 characters
+    String generateSaleNumber() {
+        return snowflakeIdGenerator.nextId("SALE-");
+    }
+
+    /**
+     * Cart saga: one Sale per line. Stock for all lines is reserved in one bulk call, the
+     * journal entries of all lines are posted in one batch (or queued in the journal outbox)
+     * and the sales are inserted in one JDBC batch. If any step fails, all lines are compensated together.
+     */
+    public List<Sale> createAndSaveCartSale(List<StockLineDto> lines) {
+        logger.info("=== SALES SERVICE - SAGA ORCHESTRATOR (CART) ===");
+        logger.info("CompleteSaleBl.createAndSaveCartSale called with {} lines", lines != null ? lines.size() : 0);
+
+        validateCartLines(lines);
+
+        List<String> saleNumbers = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            saleNumbers.add(generateSaleNumber());
+        }
+
+        List<Sale> sales = new ArrayList<>();
+        boolean stockReserved = false;
+        SagaLog sagaLog = null;
+        try {
+            // STEP 1: Reserve Stock for all lines, all or nothing (Warehouse Service)
+            logger.info("SAGA STEP 1: Reserving stock for {} lines", lines.size());
+            Map<Integer, BigDecimal> pricesByProduct = sagaMetrics.timeStep(SagaMetrics.SAGA_CART, SagaMetrics.STEP_RESERVE,
+                    () -> reserveStockBatch(lines));
+            stockReserved = true;
+            sagaLog = sagaMetrics.timeStep(SagaMetrics.SAGA_CART, SagaMetrics.STEP_SAGA_LOG,
+                    () -> RequestDeadline.withoutDeadline(() -> sagaLogBl.recordStockReserved(lines, saleNumbers)));
+
+            // STEP 2: Create one Sale Entity per line (Sales Service)
+            logger.info("SAGA STEP 2: Creating sale entities");
+            for (int i = 0; i < lines.size(); i++) {
+                StockLineDto line = lines.get(i);
+                BigDecimal unitPrice = pricesByProduct.get(line.getProductId());
+
+                // Check for rollback trigger (0.99 price)
+                if (unitPrice.compareTo(new BigDecimal("0.99")) == 0) {
+                    logger.warn("ROLLBACK TRIGGER DETECTED: Price is 0.99 for product {}, forcing cart failure for testing",
+                               line.getProductId());
+                    throw new SagaStepException(SagaMetrics.STEP_ACCOUNTING, SagaMetrics.REASON_PRICE_ROLLBACK_TRIGGER,
+                        "Accounting service failure simulation (price = 0.99)");
+                }
+
+                sales.add(createSaleEntity(line.getProductId(), unitPrice, line.getQuantity(), saleNumbers.get(i)));
             }
-            throw new RuntimeException("Product validation and stock reservation failed: " + e.getMessage(), e);
+
+            // STEP 3: Register Accounting Entries for all lines in one batch (Accounting Service)
+            logger.info("SAGA STEP 3: Registering accounting entries for {} sales", sales.size());
+            if (journalOutboxBl.isEnabled()) {
+                logger.info("Accounting entries queued in the journal outbox with the sales");
+            } else {
+                sagaMetrics.timeStep(SagaMetrics.SAGA_CART, SagaMetrics.STEP_ACCOUNTING, () -> registerSalesInJournal(sales));
+            }
+
+            // STEP 4: Save all Sales in one JDBC batch (Sales Service)
+            logger.info("SAGA STEP 4: Saving {} sales to database", sales.size());
+            SagaLog recordedSagaLog = sagaLog;
+            List<Sale> savedSales = sagaMetrics.timeStep(SagaMetrics.SAGA_CART, SagaMetrics.STEP_SAVE,
+                    () -> saveSalesAndCompleteSaga(sales, recordedSagaLog));
+
+            logger.info("=== CART SAGA COMPLETED SUCCESSFULLY ===");
+            return savedSales;
+
+        } catch (Exception e) {
+            logger.error("=== CART SAGA FAILED - INITIATING ROLLBACK ===", e);
+
+            sagaMetrics.recordRollback(SagaMetrics.SAGA_CART, e);
+            scheduleCompensation(sagaLog, stockReserved, lines, saleNumbers, e);
+            throw new RuntimeException("Cart sale failed: " + e.getMessage(), e);
         }
     }
 
-    private String generateSaleNumber() {
-        return "SALE-" + System.currentTimeMillis();
+    // Sales, their journal outbox rows and the COMPLETED saga log status are committed together,
+    // grouped with concurrent sagas
+    List<Sale> saveSalesAndCompleteSaga(List<Sale> sales, SagaLog sagaLog) {
+        return saveSalesAndCompleteSaga(sales, sagaLog, null);
+    }
+
+    // With an idempotency key, its COMPLETED record is committed with the sale as well
+    List<Sale> saveSalesAndCompleteSaga(List<Sale> sales, SagaLog sagaLog, String idempotencyKey) {
+        return saleBatchWriter.write(sales, sagaLog.getId(), idempotencyKey);
+    }
+
+    /**
+     * Compensations run in the background (SagaRecoveryBl); the request thread only records
+     * that they are needed. If even that write fails, it compensates inline as a last resort.
+     * Both run without the request deadline, which may be what failed the saga.
+     */
+    void scheduleCompensation(SagaLog sagaLog, boolean stockReserved, List<StockLineDto> stockLines,
+                              List<String> referenceNumbers, Exception cause) {
+        RequestDeadline.withoutDeadline(() -> recordCompensation(sagaLog, stockReserved, stockLines, referenceNumbers, cause));
+    }
+
+    private void recordCompensation(SagaLog sagaLog, boolean stockReserved, List<StockLineDto> stockLines,
+                                    List<String> referenceNumbers, Exception cause) {
+        if (!stockReserved) {
+            logger.info("SAGA COMPENSATION: No stock was reserved, nothing to compensate");
+            return;
+        }
+
+        try {
+            if (sagaLog == null) {
+                throw new IllegalStateException("Saga log was not recorded");
+            }
+            sagaLogBl.markCompensationPending(sagaLog.getId(), cause.getMessage());
+            logger.info("SAGA COMPENSATION: Scheduled for saga {}", sagaLog.getSagaId());
+        } catch (Exception logException) {
+            logger.error("CRITICAL: Saga log not available, compensating inline", logException);
+            sagaRecoveryBl.compensateInline(stockLines, referenceNumbers);
+        }
+    }
+
+    private void validateCartLines(List<StockLineDto> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("Cart must contain at least one line");
+        }
+
+        if (lines.size() > cartMaxLines) {
+            throw new IllegalArgumentException("Cart cannot contain more than " + cartMaxLines + " lines");
+        }
+
+        for (StockLineDto line : lines) {
+            if (line == null || line.getProductId() == null || line.getQuantity() == null || line.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Invalid cart line: " + line);
+            }
+        }
+    }
+
+    private Map<Integer, BigDecimal> reserveStockBatch(List<StockLineDto> lines) {
+        logger.info("Reserving stock for {} cart lines in a single call", lines.size());
+
+        try {
+            ResponseEntity<List<StockReservationDto>> response = warehouseClient.reserveStockBatch(lines);
+
+            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+                throw new SagaStepException(SagaMetrics.STEP_RESERVE, null, "Failed to reserve stock for cart");
+            }
+
+            Map<Integer, BigDecimal> pricesByProduct = new HashMap<>();
+            for (StockReservationDto reservation : response.getBody()) {
+                pricesByProduct.put(reservation.getProductId(), reservation.getPrice());
+            }
+            logger.info("Stock reserved successfully for {} products", pricesByProduct.size());
+            return pricesByProduct;
+
+        } catch (FeignException.NotFound e) {
+            logger.error("Product not found in cart");
+            throw new SagaStepException(SagaMetrics.STEP_RESERVE, SagaMetrics.REASON_PRODUCT_NOT_FOUND, "Product not found in cart", e);
+        } catch (FeignException.Conflict e) {
+            logger.error("Insufficient stock for cart");
+            throw new SagaStepException(SagaMetrics.STEP_RESERVE, SagaMetrics.REASON_INSUFFICIENT_STOCK,
+                    "Insufficient stock for one or more cart lines", e);
+        } catch (Exception e) {
+            logger.error("Failed to reserve stock for cart", e);
+            throw new SagaStepException(SagaMetrics.STEP_RESERVE, "Stock reservation failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void registerSalesInJournal(List<Sale> sales) {
+        logger.info("Registering {} sales in accounting journal in one batch", sales.size());
+
+        try {
+            List<JournalDto> journalEntries = new ArrayList<>();
+            for (Sale sale : sales) {
+                journalEntries.addAll(createJournalEntries(sale));
+            }
+
+            // Merged with the entries of concurrent sagas into one accounting call
+            journalBatcher.post(journalEntries);
+
+            logger.info("{} journal entries registered successfully", journalEntries.size());
+
+        } catch (Exception e) {
+            logger.error("Failed to register cart sales in journal", e);
+            throw new SagaStepException(SagaMetrics.STEP_ACCOUNTING, "Accounting registration failed: " + e.getMessage(), e);
+        }
     }
 
     @Transactional(readOnly = true)
@@ -291,8 +552,45 @@ public class CompleteSaleBl {
         return saleRepository.findById(saleId.longValue()).orElse(null);
     }
 
-    @Transactional(rollbackFor = Exception.class)
+    /**
+     * Changes the payment status of a sale and moves it between rollup rows in the same
+     * transaction. The sale row is locked so concurrent changes cannot both move it.
+     * @return The updated sale, or null if it does not exist
+     */
+    @Transactional
+    public Sale updatePaymentStatus(Long saleId, String paymentStatus) {
+        logger.info("=== SALES SERVICE ===");
+        logger.info("CompleteSaleBl.updatePaymentStatus called with saleId: {} and paymentStatus: {}", saleId, paymentStatus);
+
+        if (paymentStatus == null || paymentStatus.isBlank() || paymentStatus.length() > 20) {
+            throw new IllegalArgumentException("Invalid payment status: " + paymentStatus);
+        }
+
+        Sale sale = saleRepository.findByIdForUpdate(saleId).orElse(null);
+        if (sale == null) {
+            return null;
+        }
+
+        String previousStatus = sale.getPaymentStatus();
+        String newStatus = paymentStatus.trim().toLowerCase();
+        if (!newStatus.equals(previousStatus)) {
+            sale.setPaymentStatus(newStatus);
+            saleRollupBl.recordPaymentStatusChange(sale, previousStatus);
+            logger.info("Payment status of sale {} changed from {} to {}", sale.getSaleNumber(), previousStatus, newStatus);
+        }
+        return sale;
+    }
+
+    // Not @Transactional, see createAndSaveSale
     public Sale createAndSaveSaleWithProductDtoPrice(ProductDto productDto, Integer quantity) {
+        return createAndSaveSaleWithProductDtoPrice(productDto, quantity, null);
+    }
+
+    /**
+     * Same saga, for a request claimed by IdempotencyBl: the key is marked COMPLETED in the
+     * transaction that inserts the sale, so a retry can never run the saga a second time
+     */
+    public Sale createAndSaveSaleWithProductDtoPrice(ProductDto productDto, Integer quantity, String idempotencyKey) {
         logger.info("=== SALES SERVICE - SAGA ORCHESTRATOR (MONOLITH-STYLE) ===");
         logger.info("CompleteSaleBl.createAndSaveSaleWithProductDtoPrice called with productDto: {} and quantity: {}", 
                    productDto, quantity);
@@ -300,15 +598,27 @@ public class CompleteSaleBl {
         String saleNumber = generateSaleNumber();
         logger.info("Generated sale number: {}", saleNumber);
 
+        List<StockLineDto> stockLines = List.of(new StockLineDto(productDto.getId(), quantity));
+        boolean stockReserved = false;
+        SagaLog sagaLog = null;
         try {
             // STEP 1: Validate Product exists and Reserve Stock (Warehouse Service) - atomic operation
             logger.info("SAGA STEP 1: Validating product exists and reserving stock");
-            ProductDto validatedProduct = validateProductAndReserveStock(productDto.getId(), quantity);
+            sagaMetrics.timeStep(SagaMetrics.SAGA_PRODUCT_PRICE, SagaMetrics.STEP_RESERVE, () -> {
+                if (reserveAndDescribe) {
+                    reserveAndDescribe(productDto.getId(), quantity);
+                } else {
+                    validateProductAndReserveStock(productDto.getId(), quantity);
+                }
+            });
+            stockReserved = true;
+            sagaLog = sagaMetrics.timeStep(SagaMetrics.SAGA_PRODUCT_PRICE, SagaMetrics.STEP_SAGA_LOG,
+                    () -> RequestDeadline.withoutDeadline(() -> sagaLogBl.recordStockReserved(stockLines, List.of(saleNumber))));
             logger.info("Product validated and stock reserved for productId: {}", productDto.getId());
 
             // STEP 2: Create Sale Entity using ProductDto price (like monolith)
             logger.info("SAGA STEP 2: Creating sale entity using ProductDto price: {}", productDto.getPrice());
-            Sale sale = createSaleEntity(productDto, quantity, saleNumber);
+            Sale sale = createSaleEntity(productDto.getId(), productDto.getPrice(), quantity, saleNumber);
             logger.info("Sale entity created: {}", sale);
 
             // STEP 3: Register Accounting Entries (will trigger 0.99 rollback if needed)
@@ -317,20 +627,32 @@ public class CompleteSaleBl {
             // Check for rollback trigger (0.99 price)
             if (productDto.getPrice().compareTo(new BigDecimal("0.99")) == 0) {
                 logger.warn("ROLLBACK TRIGGER DETECTED: Price is 0.99, this may trigger accounting failure");
+                if (journalOutboxBl.isEnabled()) {
+                    // Accounting only sees outbox entries after the sale is committed, too late to
+                    // compensate: entries it is known to reject fail the saga here
+                    throw new SagaStepException(SagaMetrics.STEP_ACCOUNTING, SagaMetrics.REASON_PRICE_ROLLBACK_TRIGGER,
+                            "Accounting service failure simulation (price = 0.99)");
+                }
             }
             
-            try {
-                registerSaleInJournal(sale);
-                logger.info("Accounting entries registered successfully");
-            } catch (Exception accountingException) {
-                logger.warn("Accounting service error: {}", accountingException.getMessage());
-                // Re-throw to trigger rollback
-                throw accountingException;
+            if (journalOutboxBl.isEnabled()) {
+                logger.info("Accounting entries queued in the journal outbox with the sale");
+            } else {
+                try {
+                    sagaMetrics.timeStep(SagaMetrics.SAGA_PRODUCT_PRICE, SagaMetrics.STEP_ACCOUNTING, () -> registerSaleInJournal(sale));
+                    logger.info("Accounting entries registered successfully");
+                } catch (Exception accountingException) {
+                    logger.warn("Accounting service error: {}", accountingException.getMessage());
+                    // Re-throw to trigger rollback
+                    throw accountingException;
+                }
             }
 
             // STEP 4: Save Sale (Sales Service)
             logger.info("SAGA STEP 4: Saving sale to database");
-            Sale savedSale = saleRepository.save(sale);
+            SagaLog recordedSagaLog = sagaLog;
+            Sale savedSale = sagaMetrics.timeStep(SagaMetrics.SAGA_PRODUCT_PRICE, SagaMetrics.STEP_SAVE,
+                    () -> saveSalesAndCompleteSaga(List.of(sale), recordedSagaLog, idempotencyKey).get(0));
             logger.info("Sale saved successfully: {}", savedSale);
 
             logger.info("=== SAGA COMPLETED SUCCESSFULLY ===");
@@ -338,26 +660,10 @@ public class CompleteSaleBl {
 
         } catch (Exception e) {
             logger.error("=== SAGA FAILED - INITIATING ROLLBACK ===", e);
-            
-            // Rollback compensation: Release reserved stock
-            try {
-                logger.info("SAGA COMPENSATION: Releasing reserved stock for product: {}", productDto.getId());
-                warehouseClient.releaseStock(productDto.getId(), quantity);
-                logger.info("Stock released successfully during rollback");
-            } catch (Exception rollbackException) {
-                logger.error("CRITICAL: Failed to release stock during rollback", rollbackException);
-            }
 
-            // Rollback compensation: Delete any created accounting entries (if service is available)
-            try {
-                logger.info("SAGA COMPENSATION: Deleting accounting entries for transaction: {}", saleNumber);
-                accountingClient.deleteJournalEntriesByTransaction(saleNumber);
-                logger.info("Accounting entries deleted successfully during rollback");
-            } catch (Exception rollbackException) {
-                logger.warn("Accounting service not available for rollback compensation");
-            }
+            sagaMetrics.recordRollback(SagaMetrics.SAGA_PRODUCT_PRICE, e);
+            scheduleCompensation(sagaLog, stockReserved, stockLines, List.of(saleNumber), e);
 
-            logger.error("=== SAGA ROLLBACK COMPLETED ===");
             throw new RuntimeException("Sale creation failed: " + e.getMessage(), e);
         }
     }
@@ -0,0 +1,238 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.dto.ProductDto;
+import bo.edu.ucb.ms.sales.entity.IdempotencyRecord;
+import bo.edu.ucb.ms.sales.entity.Sale;
+import bo.edu.ucb.ms.sales.repository.IdempotencyRecordRepository;
+import bo.edu.ucb.ms.sales.repository.SaleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key support for POST /api/sales. A retried request gets the sale of the original
+ * one (or waits for it while it is still running) instead of running a new saga, so warehouse
+ * and accounting are not called again.
+ *
+ * Keys are looked up in a bounded in-memory cache first and in the idempotency_record table
+ * second, which also covers retries that land on another instance or after a restart.
+ */
+@Service
+public class IdempotencyBl {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyBl.class);
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Value("${sales.idempotency.max-cached-keys:10000}")
+    private int maxCachedKeys;
+
+    @Value("${sales.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    @Value("${sales.idempotency.in-progress-timeout-ms:120000}")
+    private long inProgressTimeoutMs;
+
+    @Value("${sales.idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    private final Map<String, CachedRequest> requests = new ConcurrentHashMap<>();
+
+    // Insertion order of the cached keys, used to evict the oldest ones
+    private final Queue<String> keyOrder = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Runs the sale saga once per idempotency key
+     * @throws IdempotencyKeyMismatchException if the key was already used for a different request
+     * @throws IdempotencyKeyInUseException if the original request is still running elsewhere
+     */
+    public IdempotentSale execute(String idempotencyKey, ProductDto productDto, Integer quantity,
+                                  Supplier<Sale> saga) {
+        validateKey(idempotencyKey);
+        String fingerprint = fingerprint(productDto, quantity);
+
+        CachedRequest own = new CachedRequest(fingerprint);
+        CachedRequest existing = requests.putIfAbsent(idempotencyKey, own);
+        if (existing != null) {
+            checkFingerprint(idempotencyKey, existing.fingerprint, fingerprint);
+            logger.info("Idempotency key {} found in cache, replaying original sale", idempotencyKey);
+            return new IdempotentSale(await(idempotencyKey, existing.result), true);
+        }
+        keyOrder.add(idempotencyKey);
+        evictOldestKeys();
+
+        boolean claimed = false;
+        try {
+            Optional<IdempotencyRecord> record = idempotencyRecordRepository.findById(idempotencyKey);
+            if (record.isPresent()) {
+                checkFingerprint(idempotencyKey, record.get().getRequestFingerprint(), fingerprint);
+                if (record.get().getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                    Sale sale = saleRepository.findById(record.get().getSaleId())
+                            .orElseThrow(() -> new IllegalStateException("Sale of idempotency key " + idempotencyKey + " not found"));
+                    own.result.complete(sale);
+                    logger.info("Idempotency key {} found in database, replaying sale: {}", idempotencyKey, sale.getSaleNumber());
+                    return new IdempotentSale(sale, true);
+                }
+            }
+
+            claimed = claim(idempotencyKey, fingerprint);
+            if (!claimed) {
+                throw new IdempotencyKeyInUseException(idempotencyKey);
+            }
+
+            // The saga marks the key COMPLETED in the transaction that inserts the sale (recordCompleted)
+            Sale sale = saga.get();
+            own.result.complete(sale);
+            return new IdempotentSale(sale, false);
+
+        } catch (RuntimeException e) {
+            // The saga was compensated (or never ran), so a retry with the same key may run it again
+            requests.remove(idempotencyKey, own);
+            own.result.completeExceptionally(e);
+            if (claimed) {
+                releaseClaim(idempotencyKey);
+            }
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sales.idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpiredRecords() {
+        int deleted = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (deleted > 0) {
+            logger.info("Deleted {} expired idempotency records", deleted);
+        }
+    }
+
+    private boolean claim(String idempotencyKey, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        return idempotencyRecordRepository.insertIfAbsent(idempotencyKey, fingerprint, now) == 1
+                || idempotencyRecordRepository.takeOverStale(idempotencyKey, fingerprint, now,
+                        now.minus(inProgressTimeoutMs, ChronoUnit.MILLIS)) == 1;
+    }
+
+    /**
+     * Marks the key COMPLETED with its sale. Called by SaleBatchWriter inside the transaction
+     * that inserts the sale: both commit or neither does, so a key never stays IN_PROGRESS
+     * (and open to takeOverStale) for a sale that exists.
+     */
+    void recordCompleted(String idempotencyKey, Sale sale) {
+        idempotencyRecordRepository.markCompleted(idempotencyKey, sale.getId(), LocalDateTime.now());
+    }
+
+    private void releaseClaim(String idempotencyKey) {
+        try {
+            idempotencyRecordRepository.releaseInProgress(idempotencyKey);
+        } catch (Exception e) {
+            logger.warn("Could not release idempotency key {}, it frees up after {} ms",
+                       idempotencyKey, inProgressTimeoutMs);
+        }
+    }
+
+    private Sale await(String idempotencyKey, CompletableFuture<Sale> result) {
+        try {
+            return result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Original request failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInUseException(idempotencyKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyInUseException(idempotencyKey);
+        }
+    }
+
+    private void validateKey(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must have between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    private void checkFingerprint(String idempotencyKey, String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new IdempotencyKeyMismatchException(idempotencyKey);
+        }
+    }
+
+    private String fingerprint(ProductDto productDto, Integer quantity) {
+        String price = productDto.getPrice() != null ? productDto.getPrice().stripTrailingZeros().toPlainString() : "";
+        return "product=" + productDto.getId() + ";price=" + price + ";quantity=" + quantity;
+    }
+
+    private void evictOldestKeys() {
+        while (requests.size() > maxCachedKeys) {
+            String oldest = keyOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            requests.remove(oldest);
+        }
+    }
+
+    private static final class CachedRequest {
+        private final String fingerprint;
+        private final CompletableFuture<Sale> result = new CompletableFuture<>();
+
+        private CachedRequest(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Sale returned for an idempotent request, replayed when it was created by an earlier request
+     */
+    public static class IdempotentSale {
+        private final Sale sale;
+        private final boolean replayed;
+
+        public IdempotentSale(Sale sale, boolean replayed) {
+            this.sale = sale;
+            this.replayed = replayed;
+        }
+
+        public Sale getSale() {
+            return sale;
+        }
+
+        public boolean isReplayed() {
+            return replayed;
+        }
+    }
+
+    public static class IdempotencyKeyInUseException extends IllegalStateException {
+        public IdempotencyKeyInUseException(String idempotencyKey) {
+            super("Request with Idempotency-Key " + idempotencyKey + " is still being processed");
+        }
+    }
+
+    public static class IdempotencyKeyMismatchException extends IllegalArgumentException {
+        public IdempotencyKeyMismatchException(String idempotencyKey) {
+            super("Idempotency-Key " + idempotencyKey + " was already used for a different request");
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.client.AccountingClient;
+import bo.edu.ucb.ms.sales.config.RequestDeadline;
+import bo.edu.ucb.ms.sales.dto.JournalDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micro-batching of the synchronous journal posting (journal outbox disabled). Entries from
+ * concurrent sagas are collected for a few milliseconds (or until max-batch-entries) and posted
+ * in one /journal/batch call; up to max-in-flight calls run at once, and while they are busy the
+ * next batch keeps growing. Every waiting saga is then released with its own result: accounting
+ * posts a batch all or nothing, so when it rejects a merged batch (4xx) the batch is split in
+ * halves and posted again until the bad saga is isolated, and only that one fails; any other
+ * failure fails the whole batch.
+ * A call carries the latest deadline of its sagas, so one saga about to time out does not cut
+ * the call short for the others; each saga still stops waiting at its own deadline (post), and
+ * its compensation removes entries posted after that. Sagas with less than min-remaining-ms
+ * left are not sent at all.
+ * Metric: sales.journal.batcher.batch.size (sagas per call).
+ */
+@Service
+public class JournalBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalBatcher.class);
+
+    @Autowired
+    private AccountingClient accountingClient;
+
+    @Autowired
+    private JournalOutboxBl journalOutboxBl;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sales.journal-batcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sales.journal-batcher.max-batch-entries:200}")
+    private int maxBatchEntries;
+
+    @Value("${sales.journal-batcher.max-wait-ms:5}")
+    private long maxWaitMs;
+
+    @Value("${sales.journal-batcher.min-remaining-ms:100}")
+    private long minRemainingMs;
+
+    @Value("${sales.journal-batcher.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${sales.journal-batcher.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<PendingPost> queue;
+
+    private Semaphore inFlight;
+
+    private ExecutorService flushExecutor;
+
+    private DistributionSummary batchSize;
+
+    private Thread collectorThread;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || journalOutboxBl.isEnabled()) {
+            logger.info("Journal micro-batching not started (enabled: {}, journal outbox: {})", enabled, journalOutboxBl.isEnabled());
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        inFlight = new Semaphore(maxInFlight);
+        AtomicInteger threadNumber = new AtomicInteger();
+        flushExecutor = Executors.newFixedThreadPool(maxInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "journal-batcher-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        batchSize = DistributionSummary.builder("sales.journal.batcher.batch.size")
+                .description("Sagas whose journal entries were posted in one accounting call")
+                .register(meterRegistry);
+
+        running = true;
+        collectorThread = new Thread(this::runCollector, "journal-batcher");
+        collectorThread.setDaemon(true);
+        collectorThread.start();
+        logger.info("Journal micro-batching started: max {} entries or {} ms per call, {} calls in flight",
+                   maxBatchEntries, maxWaitMs, maxInFlight);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (collectorThread == null) {
+            return;
+        }
+
+        running = false;
+        collectorThread.join(TimeUnit.SECONDS.toMillis(30));
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(30, TimeUnit.SECONDS);
+
+        // Anything offered while the collector was exiting is posted here
+        List<PendingPost> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    /**
+     * Posts the journal entries of one saga, blocking until the call that contains them is done
+     * or the saga deadline of the current thread is spent
+     */
+    public void post(List<JournalDto> entries) {
+        Long deadlineNanos = RequestDeadline.current();
+        CompletableFuture<Void> result = submit(entries, deadlineNanos);
+        if (result == null) {
+            postDirectly(entries);
+            return;
+        }
+
+        try {
+            if (deadlineNanos == null) {
+                result.get();
+            } else {
+                result.get(Math.max(0, RequestDeadline.remainingMillis(deadlineNanos)), TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException e) {
+            throw new RequestDeadline.DeadlineExceededException("Deadline exceeded while registering accounting entries", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while registering accounting entries", e);
+        }
+    }
+
+    /**
+     * Non-blocking variant for the reactive saga
+     * @return Completed once the entries are posted, or null if batching is off or the queue is
+     *         full (the caller posts them itself)
+     */
+    public CompletableFuture<Void> submit(List<JournalDto> entries, Long deadlineNanos) {
+        if (!running) {
+            return null;
+        }
+
+        PendingPost pending = new PendingPost(entries, deadlineNanos);
+        if (!queue.offer(pending)) {
+            logger.warn("Journal batcher queue full, posting {} entries directly", entries.size());
+            return null;
+        }
+        return pending.result;
+    }
+
+    private void runCollector() {
+        List<PendingPost> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingPost first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                // Collect more sagas until the batch is full or the wait window closes
+                batch.add(first);
+                int entries = first.entries.size();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (entries < maxBatchEntries) {
+                    long remainingNanos = deadline - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        break;
+                    }
+                    PendingPost next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    entries += next.entries.size();
+                }
+
+                inFlight.acquire();
+                List<PendingPost> flushing = new ArrayList<>(batch);
+                flushExecutor.execute(() -> {
+                    try {
+                        flush(flushing);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                flush(batch);
+                break;
+            } catch (Throwable t) {
+                // The collector must never die silently with sagas waiting on it
+                logger.error("Unexpected error in journal batcher", t);
+                batch.forEach(pending -> pending.result.completeExceptionally(t));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingPost> batch) {
+        List<PendingPost> live = new ArrayList<>();
+        for (PendingPost pending : batch) {
+            if (RequestDeadline.remainingMillis(pending.deadlineNanos) < minRemainingMs) {
+                pending.result.completeExceptionally(new RequestDeadline.DeadlineExceededException("Deadline exceeded before registering accounting entries"));
+            } else {
+                live.add(pending);
+            }
+        }
+        if (live.isEmpty()) {
+            return;
+        }
+
+        batchSize.record(live.size());
+        postOrSplit(live);
+    }
+
+    private void postOrSplit(List<PendingPost> batch) {
+        List<JournalDto> allEntries = new ArrayList<>();
+        // A saga without a deadline leaves the call without one
+        boolean unbounded = false;
+        Long latestDeadline = null;
+        for (PendingPost pending : batch) {
+            allEntries.addAll(pending.entries);
+            if (pending.deadlineNanos == null) {
+                unbounded = true;
+            } else if (latestDeadline == null || pending.deadlineNanos - latestDeadline > 0) {
+                latestDeadline = pending.deadlineNanos;
+            }
+        }
+
+        RequestDeadline.set(unbounded ? null : latestDeadline);
+        try {
+            postDirectly(allEntries);
+            logger.info("Posted {} journal entries of {} sagas in one call", allEntries.size(), batch.size());
+            batch.forEach(pending -> pending.result.complete(null));
+
+        } catch (Exception e) {
+            if (batch.size() > 1 && JournalOutboxRelay.isRejected(e)) {
+                // Nothing of the batch was posted; halves without the bad saga go through on the next try
+                logger.warn("Journal batch of {} sagas rejected, splitting it: {}", batch.size(), e.getMessage());
+                int half = batch.size() / 2;
+                postOrSplit(batch.subList(0, half));
+                postOrSplit(batch.subList(half, batch.size()));
+            } else {
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            }
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    private void postDirectly(List<JournalDto> entries) {
+        ResponseEntity<List<JournalDto>> response = accountingClient.createJournalEntries(entries);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new RuntimeException("Failed to create journal entries");
+        }
+    }
+
+    private static final class PendingPost {
+        private final List<JournalDto> entries;
+        private final Long deadlineNanos;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingPost(List<JournalDto> entries, Long deadlineNanos) {
+            this.entries = entries;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.entity.JournalOutbox;
+import bo.edu.ucb.ms.sales.entity.Sale;
+import bo.edu.ucb.ms.sales.repository.JournalOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistence of the journal outbox (sales.journal-outbox.enabled). Sagas do not call accounting:
+ * the journal entries a sale owes are recorded with the sale, in its transaction, and posted
+ * later by JournalOutboxRelay. When disabled, sagas post their entries synchronously as before.
+ */
+@Service
+public class JournalOutboxBl {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalOutboxBl.class);
+
+    // Advisory lock key of the relay claim ("JOURNALO" in ASCII)
+    private static final long RELAY_LOCK_KEY = 0x4A4F55524E414C4FL;
+
+    @Autowired
+    private JournalOutboxRepository journalOutboxRepository;
+
+    @Value("${sales.journal-outbox.enabled:true}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the journal entries of freshly inserted sales. Must run in the transaction that
+     * inserted them, so the sales and their postings commit or roll back together.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordSales(List<Sale> sales) {
+        if (!enabled) {
+            return;
+        }
+
+        List<JournalOutbox> rows = new ArrayList<>();
+        for (Sale sale : sales) {
+            rows.add(new JournalOutbox(sale.getSaleNumber(), sale.getTotalAmount(), sale.getSaleDate()));
+        }
+        journalOutboxRepository.saveAll(rows);
+    }
+
+    /**
+     * Leases the next batch to post, in sale number order, to the given owner
+     * @return The leased rows, empty if nothing is due or another instance holds the head
+     */
+    @Transactional
+    public List<JournalOutbox> claimBatch(String owner, int batchSize, long leaseMs) {
+        if (!journalOutboxRepository.tryLockRelay(RELAY_LOCK_KEY)) {
+            return new ArrayList<>();
+        }
+
+        // Truncated so the lease timestamp round-trips through the database unchanged
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        LocalDateTime leaseUntil = now.plus(leaseMs, ChronoUnit.MILLIS);
+
+        int claimed = journalOutboxRepository.claimBatch(owner, leaseUntil, now, batchSize);
+        if (claimed == 0) {
+            return new ArrayList<>();
+        }
+        return journalOutboxRepository.findLeasedBatch(owner, leaseUntil);
+    }
+
+    @Transactional
+    public void markPosted(List<Long> ids, String owner) {
+        int deleted = journalOutboxRepository.deleteLeased(ids, owner);
+        if (deleted < ids.size()) {
+            // Lease expired meanwhile; the other instance posts them again and accounting skips them
+            logger.warn("Journal outbox lease of {} lost, {} of {} rows left to its new owner", owner,
+                       ids.size() - deleted, ids.size());
+        }
+    }
+
+    /**
+     * Puts the rows back at the head of the outbox; nothing after them is posted before nextAttemptAt
+     */
+    @Transactional
+    public void markAttemptFailed(List<Long> ids, String owner, String error, LocalDateTime nextAttemptAt) {
+        journalOutboxRepository.releaseForRetry(ids, owner, error, nextAttemptAt);
+    }
+
+    /**
+     * Takes a row accounting rejected out of the outbox; it stays as FAILED for manual correction
+     * (set it back to PENDING to post it again)
+     */
+    @Transactional
+    public void markFailed(Long id, String owner, String error) {
+        journalOutboxRepository.markFailed(id, owner, error);
+    }
+}
@@ -0,0 +1,251 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.client.AccountingClient;
+import bo.edu.ucb.ms.sales.dto.JournalDto;
+import bo.edu.ucb.ms.sales.entity.JournalOutbox;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts the journal outbox to accounting, at least once and in sale number order. One instance
+ * at a time leases the first batch-size pending sales, posts their entries in one call and
+ * deletes the rows; the next batch is only claimed once the previous one is done, and a batch
+ * that fails stays at the head and is retried after a capped exponential backoff. A batch that
+ * was posted but whose rows could not be deleted (crash, lost lease) is posted again, so the
+ * call asks accounting to skip reference numbers it has already posted.
+ * Ordering holds among the rows visible when a batch is claimed: a saga that commits late is
+ * posted after later-numbered sales that were already posted.
+ * Runs on its own thread rather than @Scheduled, so a slow accounting never holds up the
+ * shared scheduler (saga recovery, ID lease renewal).
+ * Metrics: sales.journal.outbox.posted (sales), sales.journal.outbox.failures{outcome=retry|rejected},
+ * sales.journal.outbox.lag (sale commit to posting).
+ */
+@Service
+public class JournalOutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalOutboxRelay.class);
+
+    @Autowired
+    private JournalOutboxBl journalOutboxBl;
+
+    @Autowired
+    private CompleteSaleBl completeSaleBl;
+
+    @Autowired
+    private AccountingClient accountingClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sales.journal-outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${sales.journal-outbox.interval-ms:500}")
+    private long intervalMs;
+
+    @Value("${sales.journal-outbox.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${sales.journal-outbox.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${sales.journal-outbox.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    // Lease owner; unique per running instance
+    private final String instanceId = "sales-" + UUID.randomUUID();
+
+    private Counter posted;
+
+    private Counter retried;
+
+    private Counter rejected;
+
+    private Timer lag;
+
+    private Thread relayThread;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!journalOutboxBl.isEnabled()) {
+            logger.info("Journal outbox disabled, sagas post their journal entries synchronously");
+            return;
+        }
+
+        posted = Counter.builder("sales.journal.outbox.posted")
+                .description("Sales whose journal entries were posted from the outbox")
+                .register(meterRegistry);
+        retried = failureCounter("retry");
+        rejected = failureCounter("rejected");
+        lag = Timer.builder("sales.journal.outbox.lag")
+                .description("Time from sale commit to journal posting")
+                .register(meterRegistry);
+
+        running = true;
+        relayThread = new Thread(this::runRelay, "journal-outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+        logger.info("Journal outbox relay started: up to {} sales per batch, polling every {} ms", batchSize, intervalMs);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (relayThread == null) {
+            return;
+        }
+
+        // A batch in flight is finished; whatever is left is posted by the next instance to run
+        running = false;
+        relayThread.interrupt();
+        relayThread.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void runRelay() {
+        while (running) {
+            try {
+                // A full batch means there is probably more, claim the next one right away
+                if (relayBatch() < batchSize) {
+                    Thread.sleep(intervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable t) {
+                // The relay must never die silently, the outbox would only grow
+                logger.warn("Journal outbox relay error: {}", t.getMessage(), t);
+                try {
+                    Thread.sleep(intervalMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Number of sales leased (0 when nothing is due)
+     */
+    int relayBatch() {
+        List<JournalOutbox> batch = journalOutboxBl.claimBatch(instanceId, batchSize, leaseMs);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            post(batch);
+            journalOutboxBl.markPosted(ids(batch), instanceId);
+            recordPosted(batch);
+            logger.info("Journal outbox: entries of {} sales posted ({} to {})", batch.size(),
+                       batch.get(0).getSaleNumber(), batch.get(batch.size() - 1).getSaleNumber());
+
+        } catch (Exception e) {
+            if (isRejected(e) && batch.size() > 1) {
+                // Accounting rejects the whole batch for one bad sale, find it by posting them one by one
+                logger.warn("Journal outbox batch of {} sales rejected, posting them one by one", batch.size());
+                relayOneByOne(batch);
+            } else if (isRejected(e)) {
+                reject(batch.get(0), e);
+            } else {
+                retryLater(batch, e);
+            }
+        }
+        return batch.size();
+    }
+
+    private void relayOneByOne(List<JournalOutbox> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            JournalOutbox row = batch.get(i);
+            try {
+                post(List.of(row));
+                journalOutboxBl.markPosted(List.of(row.getId()), instanceId);
+                recordPosted(List.of(row));
+            } catch (Exception e) {
+                if (isRejected(e)) {
+                    reject(row, e);
+                } else {
+                    // Order is kept: this row and all after it wait for the next attempt
+                    retryLater(batch.subList(i, batch.size()), e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void post(List<JournalOutbox> rows) {
+        List<JournalDto> entries = new ArrayList<>();
+        for (JournalOutbox row : rows) {
+            entries.addAll(completeSaleBl.createJournalEntries(row.getSaleNumber(), row.getAmount(), row.getTransactionDate()));
+        }
+        accountingClient.postJournalEntriesOnce(entries);
+    }
+
+    private void reject(JournalOutbox row, Exception e) {
+        rejected.increment();
+        journalOutboxBl.markFailed(row.getId(), instanceId, e.getMessage());
+        logger.error("CRITICAL: Accounting rejected the journal entries of sale {}, left in the outbox as FAILED: {}",
+                    row.getSaleNumber(), e.getMessage());
+    }
+
+    private void retryLater(List<JournalOutbox> rows, Exception e) {
+        int attempt = rows.get(0).getAttempts() + 1;
+        long backoffMs = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        retried.increment();
+        journalOutboxBl.markAttemptFailed(ids(rows), instanceId, e.getMessage(),
+                LocalDateTime.now().plus(backoffMs, ChronoUnit.MILLIS));
+        logger.warn("Journal outbox: posting {} sales failed (attempt {}), retrying in {} ms: {}",
+                   rows.size(), attempt, backoffMs, e.getMessage());
+    }
+
+    /**
+     * 4xx answers other than timeout and throttling: posting the same entries again cannot succeed
+     */
+    static boolean isRejected(Exception e) {
+        return e instanceof FeignException.FeignClientException clientException
+                && clientException.status() != 408 && clientException.status() != 429;
+    }
+
+    private void recordPosted(List<JournalOutbox> rows) {
+        posted.increment(rows.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (JournalOutbox row : rows) {
+            if (row.getCreatedAt() != null) {
+                lag.record(Duration.between(row.getCreatedAt(), now));
+            }
+        }
+    }
+
+    private List<Long> ids(List<JournalOutbox> rows) {
+        List<Long> ids = new ArrayList<>();
+        for (JournalOutbox row : rows) {
+            ids.add(row.getId());
+        }
+        return ids;
+    }
+
+    private Counter failureCounter(String outcome) {
+        return Counter.builder("sales.journal.outbox.failures")
+                .description("Failed outbox postings: retried later, or rejected by accounting for good")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,153 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.client.WarehouseClient;
+import bo.edu.ucb.ms.sales.dto.ProductDto;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Read-through cache of warehouse catalog data (ID, name, price). Stock levels are never
+ * cached: entries are stored with stockQuantity null and stock is always checked against
+ * warehouse. Entries are bounded by size, expire after a fixed time, and are refreshed in the
+ * background once refresh-after-write has passed, so hot products rarely wait for warehouse.
+ * Warehouse change events update the cached products (see applyChange), and change
+ * notifications evict them (see invalidate).
+ * Hit/miss/eviction counts are exported as cache.* metrics with cache=product-catalog.
+ */
+@Service
+public class ProductCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogCache.class);
+
+    static final String CACHE_NAME = "product-catalog";
+
+    @Autowired
+    private WarehouseClient warehouseClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sales.product-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sales.product-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${sales.product-cache.expire-after-write-ms:600000}")
+    private long expireAfterWriteMs;
+
+    @Value("${sales.product-cache.refresh-after-write-ms:300000}")
+    private long refreshAfterWriteMs;
+
+    private LoadingCache<Integer, ProductDto> cache;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("Product catalog cache disabled, every lookup goes to warehouse");
+            return;
+        }
+
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .refreshAfterWrite(Duration.ofMillis(refreshAfterWriteMs))
+                .recordStats()
+                .build(this::loadCatalogEntry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        logger.info("Product catalog cache started: max {} products, expire {} ms, refresh {} ms",
+                   maximumSize, expireAfterWriteMs, refreshAfterWriteMs);
+    }
+
+    /**
+     * Catalog fields of the product, or null if warehouse does not know it (not cached).
+     * The returned DTO is a copy with stockQuantity null.
+     */
+    public ProductDto getProduct(Integer productId) {
+        ProductDto product = enabled ? cache.get(productId) : loadCatalogEntry(productId);
+        return product != null ? copyOf(product) : null;
+    }
+
+    public void invalidate(Integer productId) {
+        if (enabled) {
+            cache.invalidate(productId);
+            logger.info("Product catalog cache entry invalidated for product: {}", productId);
+        }
+    }
+
+    public void invalidateAll(Collection<Integer> productIds) {
+        if (enabled) {
+            cache.invalidateAll(productIds);
+            logger.info("Product catalog cache entries invalidated for products: {}", productIds);
+        }
+    }
+
+    public void invalidateAll() {
+        if (enabled) {
+            cache.invalidateAll();
+            logger.info("Product catalog cache cleared");
+        }
+    }
+
+    /**
+     * Applies the catalog fields of a warehouse change event. Only products already cached are
+     * touched, and only if name or price changed; stock-only changes leave the entry as it is.
+     */
+    public void applyChange(Integer productId, String name, BigDecimal price) {
+        if (!enabled || productId == null) {
+            return;
+        }
+
+        cache.asMap().computeIfPresent(productId, (id, cached) -> {
+            if (Objects.equals(cached.getName(), name) && cached.getPrice() != null && price != null
+                    && cached.getPrice().compareTo(price) == 0) {
+                return cached;
+            }
+            logger.info("Catalog data of product {} changed in warehouse, cache entry updated", productId);
+            ProductDto catalogEntry = new ProductDto(name, price, null);
+            catalogEntry.setId(productId);
+            return catalogEntry;
+        });
+    }
+
+    // Runs on the caller thread on a miss, and on the common pool for background refreshes
+    private ProductDto loadCatalogEntry(Integer productId) {
+        logger.debug("Loading catalog data from warehouse for product: {}", productId);
+
+        try {
+            ResponseEntity<ProductDto> response = warehouseClient.getProduct(productId);
+            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+                return null;
+            }
+
+            ProductDto catalogEntry = copyOf(response.getBody());
+            catalogEntry.setId(productId);
+            return catalogEntry;
+
+        } catch (FeignException.NotFound e) {
+            return null;
+        }
+    }
+
+    private ProductDto copyOf(ProductDto product) {
+        // Stock is deliberately left out, it changes with every sale
+        ProductDto copy = new ProductDto(product.getName(), product.getPrice(), null);
+        copy.setId(product.getId());
+        return copy;
+    }
+}
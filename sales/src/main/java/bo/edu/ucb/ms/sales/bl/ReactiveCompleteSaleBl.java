@@ -0,0 +1,192 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.client.ReactiveAccountingClient;
+import bo.edu.ucb.ms.sales.client.ReactiveWarehouseClient;
+import bo.edu.ucb.ms.sales.config.RequestDeadline;
+import bo.edu.ucb.ms.sales.dto.JournalDto;
+import bo.edu.ucb.ms.sales.dto.ProductDto;
+import bo.edu.ucb.ms.sales.dto.StockLineDto;
+import bo.edu.ucb.ms.sales.entity.SagaLog;
+import bo.edu.ucb.ms.sales.entity.Sale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reactive variant of the CompleteSaleBl saga (sales.saga.mode=reactive). Same steps and the
+ * same compensations, but the calls to warehouse and accounting go through non-blocking
+ * WebClients, so no thread waits on them. Only the local JPA writes (saga log, sale) run on
+ * the bounded elastic scheduler; they reuse the helpers of CompleteSaleBl.
+ * The deadline of the request is captured when the saga starts: remote calls time out when it
+ * is spent and carry the rest of it, and the local writes run under it.
+ */
+@Service
+@ConditionalOnProperty(name = "sales.saga.mode", havingValue = "reactive")
+public class ReactiveCompleteSaleBl {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCompleteSaleBl.class);
+
+    @Autowired
+    private ReactiveWarehouseClient reactiveWarehouseClient;
+
+    @Autowired
+    private ReactiveAccountingClient reactiveAccountingClient;
+
+    @Autowired
+    private CompleteSaleBl completeSaleBl;
+
+    @Autowired
+    private SagaLogBl sagaLogBl;
+
+    @Autowired
+    private SagaMetrics sagaMetrics;
+
+    @Autowired
+    private JournalOutboxBl journalOutboxBl;
+
+    @Autowired
+    private JournalBatcher journalBatcher;
+
+    @Value("${sales.saga.timeout.warehouse:10000}")
+    private long warehouseTimeoutMs;
+
+    @Value("${sales.saga.timeout.accounting:15000}")
+    private long accountingTimeoutMs;
+
+    public Mono<Sale> createAndSaveSaleWithProductDtoPrice(ProductDto productDto, Integer quantity) {
+        logger.info("=== SALES SERVICE - REACTIVE SAGA ORCHESTRATOR ===");
+        logger.info("ReactiveCompleteSaleBl.createAndSaveSaleWithProductDtoPrice called with productDto: {} and quantity: {}",
+                   productDto, quantity);
+
+        Long deadlineNanos = RequestDeadline.current();
+        String saleNumber = completeSaleBl.generateSaleNumber();
+        List<StockLineDto> stockLines = List.of(new StockLineDto(productDto.getId(), quantity));
+        List<String> referenceNumbers = List.of(saleNumber);
+
+        // Saga state shared by the steps
+        AtomicBoolean stockReserved = new AtomicBoolean(false);
+        AtomicReference<SagaLog> sagaLog = new AtomicReference<>();
+
+        // STEP 1: Validate Product exists and Reserve Stock (Warehouse Service) - atomic operation
+        return sagaMetrics.timeStep(SagaMetrics.SAGA_REACTIVE, SagaMetrics.STEP_RESERVE,
+                        reserveAndDescribe(productDto.getId(), quantity, deadlineNanos))
+                .doOnSuccess(reserved -> stockReserved.set(true))
+                // The saga log is what lets the reservation be compensated, it is written even past the deadline
+                .then(sagaMetrics.timeStep(SagaMetrics.SAGA_REACTIVE, SagaMetrics.STEP_SAGA_LOG,
+                        blocking(null, () -> sagaLogBl.recordStockReserved(stockLines, referenceNumbers))))
+                .doOnNext(sagaLog::set)
+                .map(recorded -> {
+                    // STEP 2: Create Sale Entity using ProductDto price (like monolith)
+                    if (productDto.getPrice().compareTo(new BigDecimal("0.99")) == 0) {
+                        logger.warn("ROLLBACK TRIGGER DETECTED: Price is 0.99, this may trigger accounting failure");
+                        if (journalOutboxBl.isEnabled()) {
+                            // Outbox entries reach accounting after the commit, fail the saga here (see CompleteSaleBl)
+                            throw new SagaStepException(SagaMetrics.STEP_ACCOUNTING, SagaMetrics.REASON_PRICE_ROLLBACK_TRIGGER,
+                                    "Accounting service failure simulation (price = 0.99)");
+                        }
+                    }
+                    return completeSaleBl.createSaleEntity(productDto.getId(), productDto.getPrice(), quantity, saleNumber);
+                })
+                // STEP 3: Register Accounting Entries (will trigger 0.99 rollback if needed),
+                // unless they are queued in the journal outbox with the sale
+                .flatMap(sale -> journalOutboxBl.isEnabled() ? Mono.just(sale)
+                        : sagaMetrics.timeStep(SagaMetrics.SAGA_REACTIVE, SagaMetrics.STEP_ACCOUNTING,
+                                registerSaleInJournal(sale, deadlineNanos)).thenReturn(sale))
+                // STEP 4: Save Sale (Sales Service)
+                .flatMap(sale -> sagaMetrics.timeStep(SagaMetrics.SAGA_REACTIVE, SagaMetrics.STEP_SAVE,
+                        blocking(deadlineNanos, () -> completeSaleBl.saveSalesAndCompleteSaga(List.of(sale), sagaLog.get()).get(0))))
+                .doOnNext(savedSale -> logger.info("=== REACTIVE SAGA COMPLETED SUCCESSFULLY === {}", savedSale))
+                .onErrorResume(e -> {
+                    logger.error("=== REACTIVE SAGA FAILED - INITIATING ROLLBACK ===", e);
+                    sagaMetrics.recordRollback(SagaMetrics.SAGA_REACTIVE, e);
+                    Exception cause = e instanceof Exception exception ? exception : new RuntimeException(e);
+                    // Compensation must be recorded even when the deadline is what failed the saga
+                    return blocking(null, () -> {
+                        completeSaleBl.scheduleCompensation(sagaLog.get(), stockReserved.get(), stockLines, referenceNumbers, cause);
+                        return Boolean.TRUE;
+                    }).then(Mono.error(new RuntimeException("Sale creation failed: " + e.getMessage(), e)));
+                });
+    }
+
+    private Mono<Void> reserveAndDescribe(Integer productId, Integer quantity, Long deadlineNanos) {
+        return Mono.defer(() -> {
+                    RequestDeadline.checkNotExpired(deadlineNanos, "reserving stock");
+                    return reactiveWarehouseClient.reserveAndDescribe(productId, quantity, deadlineNanos)
+                            .timeout(stepTimeout(warehouseTimeoutMs, deadlineNanos));
+                })
+                .switchIfEmpty(Mono.error(() -> new SagaStepException(SagaMetrics.STEP_RESERVE, null, "Failed to reserve stock for product: " + productId)))
+                .doOnNext(reservation -> logger.info("Stock reserved successfully: {}", reservation))
+                .onErrorMap(e -> {
+                    if (e instanceof WebClientResponseException.NotFound) {
+                        return new SagaStepException(SagaMetrics.STEP_RESERVE, SagaMetrics.REASON_PRODUCT_NOT_FOUND,
+                                "Product not found with ID: " + productId, e);
+                    } else if (e instanceof WebClientResponseException.Conflict) {
+                        return new SagaStepException(SagaMetrics.STEP_RESERVE, SagaMetrics.REASON_INSUFFICIENT_STOCK,
+                                "Insufficient stock. Required: " + quantity, e);
+                    }
+                    return new SagaStepException(SagaMetrics.STEP_RESERVE, "Stock reservation failed: " + describe(e), e);
+                })
+                .then();
+    }
+
+    private Mono<Void> registerSaleInJournal(Sale sale, Long deadlineNanos) {
+        return Mono.defer(() -> {
+                    RequestDeadline.checkNotExpired(deadlineNanos, "registering accounting entries");
+                    List<JournalDto> entries = completeSaleBl.createJournalEntries(sale);
+                    // Merged with the entries of concurrent sagas when micro-batching is on
+                    CompletableFuture<Void> batched = journalBatcher.submit(entries, deadlineNanos);
+                    Mono<?> posting = batched != null
+                            ? Mono.fromFuture(batched)
+                            : reactiveAccountingClient.createJournalEntries(entries, deadlineNanos);
+                    return posting.timeout(stepTimeout(accountingTimeoutMs, deadlineNanos));
+                })
+                .doOnSuccess(posted -> logger.info("Journal entries registered successfully for sale: {}", sale.getSaleNumber()))
+                .onErrorMap(e -> new SagaStepException(SagaMetrics.STEP_ACCOUNTING, "Accounting registration failed: " + describe(e), e))
+                .then();
+    }
+
+    // Same shape as Feign error messages ("[422] ..."), which SalesApi maps to response statuses
+    private String describe(Throwable e) {
+        if (e instanceof TimeoutException) {
+            return "Request timed out: " + e.getMessage();
+        }
+        if (e instanceof WebClientResponseException responseException) {
+            String body = responseException.getResponseBodyAsString();
+            return "[" + responseException.getStatusCode().value() + "] "
+                    + (body.isBlank() ? responseException.getMessage() : body);
+        }
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    // Step timeout, cut short by the deadline
+    private Duration stepTimeout(long stepTimeoutMs, Long deadlineNanos) {
+        return Duration.ofMillis(Math.max(1, Math.min(stepTimeoutMs, RequestDeadline.remainingMillis(deadlineNanos))));
+    }
+
+    // Local JDBC work is blocking, keep it off the event loop; it runs under the saga deadline
+    private <T> Mono<T> blocking(Long deadlineNanos, Callable<T> work) {
+        return Mono.fromCallable(() -> {
+            RequestDeadline.set(deadlineNanos);
+            try {
+                return work.call();
+            } finally {
+                RequestDeadline.clear();
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,141 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.dto.StockLineDto;
+import bo.edu.ucb.ms.sales.entity.SagaLog;
+import bo.edu.ucb.ms.sales.repository.SagaLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Persistence of the saga log. Every write is a short local transaction, so the saga outcome
+ * is durable before the request thread returns.
+ */
+@Service
+public class SagaLogBl {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaLogBl.class);
+
+    @Autowired
+    private SagaLogRepository sagaLogRepository;
+
+    /**
+     * Records that stock has been reserved, in its own transaction so the row survives even
+     * if the rest of the saga (or the whole instance) fails.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public SagaLog recordStockReserved(List<StockLineDto> lines, List<String> referenceNumbers) {
+        SagaLog sagaLog = new SagaLog(UUID.randomUUID().toString(),
+                formatStockLines(lines), String.join(",", referenceNumbers));
+        SagaLog savedLog = sagaLogRepository.save(sagaLog);
+        logger.info("Saga log recorded: {}", savedLog);
+        return savedLog;
+    }
+
+    /**
+     * Marks the saga as completed; joins the caller's transaction so it commits with the sale
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void markCompleted(Long sagaLogId) {
+        sagaLogRepository.updateStatus(sagaLogId, SagaLog.Status.COMPLETED, SagaLog.Step.SALE_SAVED, LocalDateTime.now());
+    }
+
+    /**
+     * Marks several sagas as completed in one statement; used by the group-commit sale writer
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void markCompletedBatch(List<Long> sagaLogIds) {
+        sagaLogRepository.updateStatusBatch(sagaLogIds, SagaLog.Status.COMPLETED, SagaLog.Step.SALE_SAVED, LocalDateTime.now());
+    }
+
+    /**
+     * Hands the saga over to the recovery worker, which runs the compensations in the background
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void markCompensationPending(Long sagaLogId, String error) {
+        sagaLogRepository.updateStatusWithError(sagaLogId, SagaLog.Status.COMPENSATION_PENDING,
+                SagaLog.Step.FAILED, error, LocalDateTime.now());
+        logger.info("Saga log {} marked for compensation: {}", sagaLogId, error);
+    }
+
+    /**
+     * Leases a batch of sagas that need compensation to the given owner
+     * @param staleAfterMs In-progress sagas not updated for this long are considered crashed
+     */
+    @Transactional
+    public List<SagaLog> claimCompensationBatch(String owner, int batchSize, long leaseMs, long staleAfterMs) {
+        // Truncated so the lease timestamp round-trips through the database unchanged
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        LocalDateTime leaseUntil = now.plus(leaseMs, ChronoUnit.MILLIS);
+
+        int claimed = sagaLogRepository.claimCompensationBatch(owner, leaseUntil, now,
+                now.minus(staleAfterMs, ChronoUnit.MILLIS), batchSize);
+        if (claimed == 0) {
+            return new ArrayList<>();
+        }
+        return sagaLogRepository.findLeasedBatch(owner, leaseUntil);
+    }
+
+    @Transactional
+    public void markStockReleased(SagaLog sagaLog) {
+        sagaLog.setStockReleased(true);
+        sagaLogRepository.save(sagaLog);
+    }
+
+    @Transactional
+    public void markCompensated(SagaLog sagaLog) {
+        sagaLog.setStatus(SagaLog.Status.COMPENSATED);
+        sagaLog.setLeaseOwner(null);
+        sagaLog.setLeaseUntil(null);
+        sagaLogRepository.save(sagaLog);
+    }
+
+    /**
+     * Schedules another compensation attempt, or gives up once maxAttempts is reached
+     */
+    @Transactional
+    public void markCompensationAttemptFailed(SagaLog sagaLog, String error, int maxAttempts, LocalDateTime nextAttemptAt) {
+        sagaLog.setAttempts(sagaLog.getAttempts() + 1);
+        sagaLog.setLastError(error);
+        sagaLog.setLastStep(SagaLog.Step.FAILED);
+        sagaLog.setNextAttemptAt(nextAttemptAt);
+        sagaLog.setStatus(sagaLog.getAttempts() >= maxAttempts
+                ? SagaLog.Status.COMPENSATION_FAILED
+                : SagaLog.Status.COMPENSATION_PENDING);
+        sagaLog.setLeaseOwner(null);
+        sagaLog.setLeaseUntil(null);
+        sagaLogRepository.save(sagaLog);
+    }
+
+    public static String formatStockLines(List<StockLineDto> lines) {
+        return lines.stream()
+                .map(line -> line.getProductId() + ":" + line.getQuantity())
+                .collect(Collectors.joining(","));
+    }
+
+    public static List<StockLineDto> parseStockLines(String stockLines) {
+        List<StockLineDto> lines = new ArrayList<>();
+        for (String pair : stockLines.split(",")) {
+            String[] parts = pair.split(":");
+            lines.add(new StockLineDto(Integer.valueOf(parts[0]), Integer.valueOf(parts[1])));
+        }
+        return lines;
+    }
+
+    public static List<String> parseReferenceNumbers(String referenceNumbers) {
+        return Arrays.stream(referenceNumbers.split(","))
+                .filter(reference -> !reference.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,176 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.config.RequestDeadline;
+import feign.FeignException;
+import feign.RetryableException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Saga instrumentation, scraped from /actuator/prometheus:
+ * - sales.saga.step (timer): one per saga step, tags saga, step and outcome (success/failure)
+ * - sales.saga.compensation (timer): one per compensation step, tags step and outcome
+ * - sales.saga.rollbacks (counter): failed sagas, tags saga and reason (see rollbackReason)
+ * Percentile histograms are enabled in application.properties, so p99 per step can be
+ * computed across instances with histogram_quantile.
+ */
+@Component
+public class SagaMetrics {
+
+    static final String SAGA_SINGLE = "single";
+    static final String SAGA_PRODUCT_PRICE = "product_price";
+    static final String SAGA_CART = "cart";
+    static final String SAGA_REACTIVE = "reactive";
+
+    static final String STEP_VALIDATE = "validate";
+    static final String STEP_RESERVE = "reserve";
+    static final String STEP_SAGA_LOG = "saga_log";
+    static final String STEP_ACCOUNTING = "accounting";
+    static final String STEP_SAVE = "save";
+
+    static final String REASON_PRODUCT_NOT_FOUND = "product_not_found";
+    static final String REASON_INSUFFICIENT_STOCK = "insufficient_stock";
+    static final String REASON_PRICE_ROLLBACK_TRIGGER = "price_rollback_trigger";
+    static final String REASON_SERVICE_UNAVAILABLE = "service_unavailable";
+    static final String REASON_CIRCUIT_OPEN = "circuit_open";
+    static final String REASON_BULKHEAD_FULL = "bulkhead_full";
+    static final String REASON_TIMEOUT = "timeout";
+    static final String REASON_ACCOUNTING_REJECTED = "accounting_rejected";
+    static final String REASON_ACCOUNTING_FAILURE = "accounting_failure";
+    static final String REASON_WAREHOUSE_FAILURE = "warehouse_failure";
+    static final String REASON_OTHER = "other";
+
+    static final String COMPENSATION_RELEASE_STOCK = "release_stock";
+    static final String COMPENSATION_DELETE_JOURNAL_ENTRIES = "delete_journal_entries";
+
+    private static final String STEP_TIMER = "sales.saga.step";
+    private static final String COMPENSATION_TIMER = "sales.saga.compensation";
+    private static final String ROLLBACK_COUNTER = "sales.saga.rollbacks";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public <T> T timeStep(String saga, String step, Supplier<T> work) {
+        return time(STEP_TIMER, Tags.of("saga", saga, "step", step), work);
+    }
+
+    public void timeStep(String saga, String step, Runnable work) {
+        time(STEP_TIMER, Tags.of("saga", saga, "step", step), () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <T> Mono<T> timeStep(String saga, String step, Mono<T> work) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return work
+                    .doOnSuccess(result -> sample.stop(timer(STEP_TIMER, Tags.of("saga", saga, "step", step), "success")))
+                    .doOnError(e -> sample.stop(timer(STEP_TIMER, Tags.of("saga", saga, "step", step), "failure")));
+        });
+    }
+
+    public void timeCompensation(String step, Runnable work) {
+        time(COMPENSATION_TIMER, Tags.of("step", step), () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public void recordRollback(String saga, Throwable cause) {
+        Counter.builder(ROLLBACK_COUNTER)
+                .description("Sagas rolled back, by reason")
+                .tag("saga", saga)
+                .tag("reason", rollbackReason(cause))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Low-cardinality reason derived from the exception types along the cause chain: the reason
+     * a SagaStepException carries first, then resilience and transport failures, then the
+     * status of the downstream answer, then the failed step
+     */
+    static String rollbackReason(Throwable cause) {
+        SagaStepException stepException = null;
+        Integer status = null;
+        boolean ioFailure = false;
+        for (Throwable current = cause; current != null; current = current.getCause()) {
+            if (current instanceof SagaStepException sagaStepException) {
+                if (sagaStepException.getReason() != null) {
+                    return sagaStepException.getReason();
+                }
+                if (stepException == null) {
+                    stepException = sagaStepException;
+                }
+            } else if (current instanceof CallNotPermittedException) {
+                return REASON_CIRCUIT_OPEN;
+            } else if (current instanceof BulkheadFullException) {
+                return REASON_BULKHEAD_FULL;
+            } else if (current instanceof RequestDeadline.DeadlineExceededException
+                    || current instanceof TimeoutException || current instanceof InterruptedIOException) {
+                // Sale deadline, step timeout, or connect/read timeout of the HTTP client
+                return REASON_TIMEOUT;
+            } else if ((current instanceof RetryableException retryableException && retryableException.status() <= 0)
+                    || current instanceof WebClientRequestException) {
+                // I/O error; its cause tells a timeout from a refused connection
+                ioFailure = true;
+            } else if (status == null && current instanceof FeignException feignException && feignException.status() > 0) {
+                status = feignException.status();
+            } else if (status == null && current instanceof WebClientResponseException responseException) {
+                status = responseException.getStatusCode().value();
+            }
+        }
+
+        if (ioFailure) {
+            return REASON_SERVICE_UNAVAILABLE;
+        } else if (status != null) {
+            if (status == 503) {
+                // Also the answer of the load balancer when the service has no instance
+                return REASON_SERVICE_UNAVAILABLE;
+            } else if (status == 504 || status == 408) {
+                return REASON_TIMEOUT;
+            }
+        }
+
+        String step = stepException != null ? stepException.getStep() : null;
+        if (STEP_ACCOUNTING.equals(step)) {
+            return status != null && status >= 400 && status < 500 ? REASON_ACCOUNTING_REJECTED : REASON_ACCOUNTING_FAILURE;
+        } else if (STEP_RESERVE.equals(step) || STEP_VALIDATE.equals(step)) {
+            return REASON_WAREHOUSE_FAILURE;
+        }
+        return REASON_OTHER;
+    }
+
+    private <T> T time(String name, Tags tags, Supplier<T> work) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            T result = work.get();
+            sample.stop(timer(name, tags, "success"));
+            return result;
+        } catch (RuntimeException e) {
+            sample.stop(timer(name, tags, "failure"));
+            throw e;
+        }
+    }
+
+    private Timer timer(String name, Tags tags, String outcome) {
+        return Timer.builder(name)
+                .tags(tags)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
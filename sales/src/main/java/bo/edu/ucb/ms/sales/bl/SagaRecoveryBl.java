@@ -0,0 +1,151 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.client.AccountingClient;
+import bo.edu.ucb.ms.sales.client.WarehouseClient;
+import bo.edu.ucb.ms.sales.config.RequestDeadline;
+import bo.edu.ucb.ms.sales.dto.StockLineDto;
+import bo.edu.ucb.ms.sales.entity.SagaLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Background worker that runs saga compensations recorded in the saga log. Each instance
+ * leases its own batch of rows, so instances started with a dynamic port split the work
+ * between them, and a crashed instance's leases simply expire.
+ */
+@Service
+public class SagaRecoveryBl {
+
+    private static final Logger logger = LoggerFactory.getLogger(SagaRecoveryBl.class);
+
+    @Autowired
+    private SagaLogBl sagaLogBl;
+
+    @Autowired
+    private WarehouseClient warehouseClient;
+
+    @Autowired
+    private AccountingClient accountingClient;
+
+    @Autowired
+    private SagaMetrics sagaMetrics;
+
+    @Value("${sales.saga.recovery.batch-size:50}")
+    private int batchSize;
+
+    @Value("${sales.saga.recovery.lease-ms:30000}")
+    private long leaseMs;
+
+    @Value("${sales.saga.recovery.stale-after-ms:300000}")
+    private long staleAfterMs;
+
+    @Value("${sales.saga.recovery.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${sales.saga.recovery.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${sales.saga.recovery.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    // Lease owner; unique per running instance
+    private final String instanceId = "sales-" + UUID.randomUUID();
+
+    @Scheduled(fixedDelayString = "${sales.saga.recovery.interval-ms:1000}")
+    public void recoverPendingCompensations() {
+        List<SagaLog> batch;
+        try {
+            batch = sagaLogBl.claimCompensationBatch(instanceId, batchSize, leaseMs, staleAfterMs);
+        } catch (Exception e) {
+            logger.warn("Unable to claim saga compensation batch: {}", e.getMessage());
+            return;
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        logger.info("=== SAGA RECOVERY: {} sagas leased by {} ===", batch.size(), instanceId);
+        for (SagaLog sagaLog : batch) {
+            compensate(sagaLog);
+        }
+    }
+
+    private void compensate(SagaLog sagaLog) {
+        logger.info("SAGA COMPENSATION: Compensating saga {} (attempt {})", sagaLog.getSagaId(), sagaLog.getAttempts() + 1);
+
+        try {
+            // Persisted right after the release so a retry skips it; if that write is lost, the
+            // saga ID sent as release key keeps warehouse from releasing the same stock twice
+            if (!sagaLog.isStockReleased()) {
+                releaseStock(sagaLog.getSagaId(), SagaLogBl.parseStockLines(sagaLog.getStockLines()));
+                sagaLogBl.markStockReleased(sagaLog);
+            }
+
+            // Deleting by reference number is idempotent, so it is safe to repeat
+            deleteJournalEntries(SagaLogBl.parseReferenceNumbers(sagaLog.getReferenceNumbers()));
+
+            sagaLogBl.markCompensated(sagaLog);
+            logger.info("SAGA COMPENSATION: Saga {} compensated successfully", sagaLog.getSagaId());
+
+        } catch (Exception e) {
+            int attempt = sagaLog.getAttempts() + 1;
+            long backoffMs = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+            sagaLogBl.markCompensationAttemptFailed(sagaLog, e.getMessage(), maxAttempts,
+                    LocalDateTime.now().plus(backoffMs, ChronoUnit.MILLIS));
+
+            if (attempt >= maxAttempts) {
+                logger.error("CRITICAL: Giving up compensation of saga {} after {} attempts", sagaLog.getSagaId(), attempt, e);
+            } else {
+                logger.warn("Compensation of saga {} failed, retrying in {} ms: {}", sagaLog.getSagaId(), backoffMs, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Last resort when the saga log itself cannot be written: compensates on the calling thread,
+     * without the deadline of the request being undone
+     */
+    public void compensateInline(List<StockLineDto> lines, List<String> referenceNumbers) {
+        RequestDeadline.withoutDeadline(() -> compensateWithoutDeadline(lines, referenceNumbers));
+    }
+
+    private void compensateWithoutDeadline(List<StockLineDto> lines, List<String> referenceNumbers) {
+        try {
+            // No saga log, so no saga ID: a fresh key still makes the release safe to retry
+            releaseStock(UUID.randomUUID().toString(), lines);
+        } catch (Exception e) {
+            logger.error("CRITICAL: Failed to release stock during inline compensation", e);
+        }
+
+        try {
+            deleteJournalEntries(referenceNumbers);
+        } catch (Exception e) {
+            logger.warn("Accounting service not available for inline compensation");
+        }
+    }
+
+    private void releaseStock(String releaseKey, List<StockLineDto> lines) {
+        logger.info("SAGA COMPENSATION: Releasing reserved stock for {} lines (release key {})", lines.size(), releaseKey);
+        sagaMetrics.timeCompensation(SagaMetrics.COMPENSATION_RELEASE_STOCK,
+                () -> warehouseClient.releaseStockBatch(releaseKey, lines));
+    }
+
+    private void deleteJournalEntries(List<String> referenceNumbers) {
+        sagaMetrics.timeCompensation(SagaMetrics.COMPENSATION_DELETE_JOURNAL_ENTRIES, () -> {
+            for (String referenceNumber : referenceNumbers) {
+                logger.info("SAGA COMPENSATION: Deleting accounting entries for transaction: {}", referenceNumber);
+                accountingClient.deleteJournalEntriesByTransaction(referenceNumber);
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package bo.edu.ucb.ms.sales.bl;
+
+/**
+ * Failure of one saga step. Carries the step (SagaMetrics.STEP_*) and, when the saga itself
+ * knows why it failed (product not found, insufficient stock, the 0.99 trigger), the rollback
+ * reason (SagaMetrics.REASON_*). Without a reason, SagaMetrics derives it from the cause.
+ */
+public class SagaStepException extends RuntimeException {
+
+    private final String step;
+    private final String reason;
+
+    public SagaStepException(String step, String reason, String message) {
+        this(step, reason, message, null);
+    }
+
+    public SagaStepException(String step, String reason, String message, Throwable cause) {
+        super(message, cause);
+        this.step = step;
+        this.reason = reason;
+    }
+
+    public SagaStepException(String step, String message, Throwable cause) {
+        this(step, null, message, cause);
+    }
+
+    public String getStep() {
+        return step;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
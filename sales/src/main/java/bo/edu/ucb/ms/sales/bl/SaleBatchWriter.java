@@ -0,0 +1,249 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.entity.Sale;
+import bo.edu.ucb.ms.sales.repository.SaleRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for the last saga step. Sales from concurrent sagas are collected for a few
+ * milliseconds (or until max-batch-size rows) and written in a single transaction: one batched
+ * INSERT, with IDs pre-allocated by the pooled sale_seq, the matching rollup deltas and journal
+ * outbox rows, plus one UPDATE completing their saga logs and the idempotency keys they carry.
+ * Every waiting saga is then released with its own result.
+ */
+@Service
+public class SaleBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SaleBatchWriter.class);
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private SagaLogBl sagaLogBl;
+
+    @Autowired
+    private SaleRollupBl saleRollupBl;
+
+    @Autowired
+    private JournalOutboxBl journalOutboxBl;
+
+    @Autowired
+    private IdempotencyBl idempotencyBl;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${sales.sale-writer.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sales.sale-writer.max-batch-size:50}")
+    private int maxBatchSize;
+
+    @Value("${sales.sale-writer.max-wait-ms:5}")
+    private long maxWaitMs;
+
+    @Value("${sales.sale-writer.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<PendingWrite> queue;
+
+    private Thread writerThread;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        // Before the web server takes requests, so no sale insert can run into an existing ID
+        Long sequenceValue = saleRepository.advanceIdSequence();
+        if (sequenceValue != null) {
+            logger.info("sale_seq advanced past the existing sale IDs to {}", sequenceValue);
+        }
+
+        if (!enabled) {
+            logger.info("Sale group commit disabled, sales are written one saga at a time");
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::runWriter, "sale-batch-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Sale group commit started: max {} rows or {} ms per batch", maxBatchSize, maxWaitMs);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+
+        // Anything offered while the writer was exiting is written here
+        List<PendingWrite> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    /**
+     * Saves the sales and marks their saga as completed, blocking until the group commit that
+     * contains them is done
+     */
+    public List<Sale> write(List<Sale> sales, Long sagaLogId, String idempotencyKey) {
+        PendingWrite pending = new PendingWrite(sales, sagaLogId, idempotencyKey);
+        if (!running) {
+            return writeDirectly(pending);
+        }
+
+        if (!queue.offer(pending)) {
+            logger.warn("Sale writer queue full, writing {} sales directly", sales.size());
+            return writeDirectly(pending);
+        }
+
+        // stop() may have drained the queue between the running check and the offer: take the
+        // write back if nobody picked it up, otherwise the writer or stop() completes it
+        if (!running && queue.remove(pending)) {
+            return writeDirectly(pending);
+        }
+
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                // Collect more sagas until the batch is full or the wait window closes
+                batch.add(first);
+                int rows = first.sales.size();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (rows < maxBatchSize) {
+                    long remainingNanos = deadline - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    rows += next.sales.size();
+                }
+
+                flush(batch);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                flush(batch);
+                break;
+            } catch (Throwable t) {
+                // The writer must never die silently with sagas waiting on it
+                logger.error("Unexpected error in sale batch writer", t);
+                batch.forEach(pending -> pending.result.completeExceptionally(t));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Sale> allSales = new ArrayList<>();
+        List<Long> sagaLogIds = new ArrayList<>();
+        for (PendingWrite pending : batch) {
+            allSales.addAll(pending.sales);
+            sagaLogIds.add(pending.sagaLogId);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                saleRepository.saveAll(allSales);
+                saleRollupBl.recordInserted(allSales);
+                journalOutboxBl.recordSales(allSales);
+                sagaLogBl.markCompletedBatch(sagaLogIds);
+                batch.forEach(this::recordIdempotencyKey);
+            });
+            logger.info("Group commit of {} sales from {} sagas", allSales.size(), batch.size());
+            batch.forEach(pending -> pending.result.complete(pending.sales));
+
+        } catch (Exception e) {
+            // One bad sale must not fail the other sagas of the batch, retry them one by one
+            logger.warn("Group commit of {} sagas failed, writing them one by one", batch.size(), e);
+            for (PendingWrite pending : batch) {
+                try {
+                    // IDs assigned by the rolled back persist are discarded so the sales are inserted again
+                    pending.sales.forEach(sale -> sale.setId(null));
+                    pending.result.complete(writeDirectly(pending));
+                } catch (Exception writeException) {
+                    pending.result.completeExceptionally(writeException);
+                }
+            }
+        }
+    }
+
+    private List<Sale> writeDirectly(PendingWrite pending) {
+        return transactionTemplate.execute(status -> {
+            List<Sale> savedSales = saleRepository.saveAll(pending.sales);
+            saleRollupBl.recordInserted(savedSales);
+            journalOutboxBl.recordSales(savedSales);
+            sagaLogBl.markCompleted(pending.sagaLogId);
+            recordIdempotencyKey(pending);
+            return savedSales;
+        });
+    }
+
+    // Idempotent requests are single sales, the key points at that sale
+    private void recordIdempotencyKey(PendingWrite pending) {
+        if (pending.idempotencyKey != null) {
+            idempotencyBl.recordCompleted(pending.idempotencyKey, pending.sales.get(0));
+        }
+    }
+
+    private static final class PendingWrite {
+        private final List<Sale> sales;
+        private final Long sagaLogId;
+        private final String idempotencyKey;
+        private final CompletableFuture<List<Sale>> result = new CompletableFuture<>();
+
+        private PendingWrite(List<Sale> sales, Long sagaLogId, String idempotencyKey) {
+            this.sales = sales;
+            this.sagaLogId = sagaLogId;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.entity.Sale;
+import bo.edu.ucb.ms.sales.repository.SaleRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * Streams sales to an output stream as NDJSON or CSV with constant memory, however many rows
+ * match. Rows are read in keyset pages by ID (id > last exported ID), each page in its own
+ * short read-only transaction through a server-side cursor, and every entity is detached
+ * once written, so neither the heap nor the persistence context grow with the export. A
+ * broken export can be resumed with afterId set to the last ID received.
+ */
+@Service
+public class SaleExportBl {
+
+    private static final Logger logger = LoggerFactory.getLogger(SaleExportBl.class);
+
+    public enum ExportFormat { NDJSON, CSV }
+
+    private static final String CSV_HEADER = "id,saleNumber,productId,quantity,unitPrice,totalAmount,discountAmount,"
+            + "finalAmount,saleDate,customerId,customerName,paymentMethod,paymentStatus,createdAt";
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${sales.export.page-size:5000}")
+    private int pageSize;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes the matching sales with ID greater than afterId, in ID order. Null filters are ignored.
+     * @return Number of sales written
+     */
+    public long export(ExportFormat format, Long afterId, Integer productId, String paymentStatus,
+                       LocalDateTime startDate, LocalDateTime endDate, OutputStream outputStream) throws IOException {
+        logger.info("=== SALES SERVICE - EXPORT ===");
+        logger.info("SaleExportBl.export called with format: {}, afterId: {}, productId: {}, paymentStatus: {}, from {} to {}",
+                   format, afterId, productId, paymentStatus, startDate, endDate);
+
+        long startNanos = System.nanoTime();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+        JsonGenerator json = null;
+        if (format == ExportFormat.NDJSON) {
+            json = objectMapper.getFactory().createGenerator(writer);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null);
+        } else {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long total = 0;
+        long lastId = afterId != null ? afterId : 0L;
+        while (true) {
+            // [0] last ID of the page, [1] rows in the page
+            long[] page = {lastId, 0};
+            JsonGenerator pageJson = json;
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    try (Stream<Sale> sales = saleRepository.streamForExport(page[0], productId, paymentStatus,
+                            startDate, endDate, Limit.of(pageSize))) {
+                        sales.forEach(sale -> {
+                            writeSale(sale, pageJson, writer);
+                            entityManager.detach(sale);
+                            page[0] = sale.getId();
+                            page[1]++;
+                        });
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // Client went away: stop reading, the transaction is already over
+                logger.warn("Sale export aborted after {} rows (last ID {}): {}", total + page[1], page[0], e.getMessage());
+                throw e.getCause();
+            }
+
+            if (json != null) {
+                json.flush();
+            }
+            writer.flush();
+            total += page[1];
+            lastId = page[0];
+
+            if (page[1] < pageSize) {
+                break;
+            }
+        }
+
+        logger.info("Sale export finished: {} rows in {} ms", total, (System.nanoTime() - startNanos) / 1_000_000);
+        return total;
+    }
+
+    private void writeSale(Sale sale, JsonGenerator json, Writer writer) {
+        try {
+            if (json != null) {
+                writeJson(sale, json);
+                json.writeRaw('\n');
+            } else {
+                writeCsv(sale, writer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeJson(Sale sale, JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", sale.getId());
+        json.writeStringField("saleNumber", sale.getSaleNumber());
+        json.writeNumberField("productId", sale.getProductId());
+        json.writeNumberField("quantity", sale.getQuantity());
+        writeNumber(json, "unitPrice", sale.getUnitPrice());
+        writeNumber(json, "totalAmount", sale.getTotalAmount());
+        writeNumber(json, "discountAmount", sale.getDiscountAmount());
+        writeNumber(json, "finalAmount", sale.getFinalAmount());
+        json.writeStringField("saleDate", sale.getSaleDate() != null ? sale.getSaleDate().toString() : null);
+        if (sale.getCustomerId() != null) {
+            json.writeNumberField("customerId", sale.getCustomerId());
+        } else {
+            json.writeNullField("customerId");
+        }
+        json.writeStringField("customerName", sale.getCustomerName());
+        json.writeStringField("paymentMethod", sale.getPaymentMethod());
+        json.writeStringField("paymentStatus", sale.getPaymentStatus());
+        json.writeStringField("createdAt", sale.getCreatedAt() != null ? sale.getCreatedAt().toString() : null);
+        json.writeEndObject();
+    }
+
+    private void writeNumber(JsonGenerator json, String field, BigDecimal value) throws IOException {
+        if (value != null) {
+            json.writeNumberField(field, value);
+        } else {
+            json.writeNullField(field);
+        }
+    }
+
+    private void writeCsv(Sale sale, Writer writer) throws IOException {
+        writer.write(String.valueOf(sale.getId()));
+        writeCsvField(writer, sale.getSaleNumber());
+        writeCsvField(writer, sale.getProductId());
+        writeCsvField(writer, sale.getQuantity());
+        writeCsvField(writer, sale.getUnitPrice());
+        writeCsvField(writer, sale.getTotalAmount());
+        writeCsvField(writer, sale.getDiscountAmount());
+        writeCsvField(writer, sale.getFinalAmount());
+        writeCsvField(writer, sale.getSaleDate());
+        writeCsvField(writer, sale.getCustomerId());
+        writeCsvField(writer, sale.getCustomerName());
+        writeCsvField(writer, sale.getPaymentMethod());
+        writeCsvField(writer, sale.getPaymentStatus());
+        writeCsvField(writer, sale.getCreatedAt());
+        writer.write('\n');
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks
+    private void writeCsvField(Writer writer, Object value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        } else {
+            writer.write(text);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.dto.ProductSalesSummaryDto;
+import bo.edu.ucb.ms.sales.dto.SalesSummaryDto;
+import bo.edu.ucb.ms.sales.entity.Sale;
+import bo.edu.ucb.ms.sales.entity.SaleDailyRollupId;
+import bo.edu.ucb.ms.sales.entity.SaleRollupRebuild;
+import bo.edu.ucb.ms.sales.repository.SaleDailyRollupRepository;
+import bo.edu.ucb.ms.sales.repository.SaleRepository;
+import bo.edu.ucb.ms.sales.repository.SaleRollupRebuildRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Daily per-product sales rollups. Every sale insert and payment status change adds its delta
+ * to the rollup rows in the same transaction, so the rollups never drift from the Sale table.
+ * Dashboard ranges are answered from the rollups for their full days; only the partial days
+ * at the edges (typically today, up to now) are aggregated from raw Sale rows.
+ */
+@Service
+public class SaleRollupBl {
+
+    private static final Logger logger = LoggerFactory.getLogger(SaleRollupBl.class);
+
+    static final String DEFAULT_PAYMENT_STATUS = "pending";
+
+    // Key of the rebuild marker in sale_rollup_rebuild
+    private static final String DAILY_ROLLUP = "sale_daily_rollup";
+
+    // Rows are always updated in this order, so concurrent transactions cannot deadlock on them
+    private static final Comparator<SaleDailyRollupId> LOCK_ORDER = Comparator
+            .comparing(SaleDailyRollupId::getSaleDay)
+            .thenComparing(SaleDailyRollupId::getProductId)
+            .thenComparing(SaleDailyRollupId::getPaymentStatus);
+
+    @Autowired
+    private SaleDailyRollupRepository saleDailyRollupRepository;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private SaleRollupRebuildRepository saleRollupRebuildRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Adds freshly inserted sales to the rollups. Must run in the transaction that inserted
+     * them, after the insert (createdAt is assigned on persist).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordInserted(List<Sale> sales) {
+        Map<SaleDailyRollupId, Delta> deltas = new TreeMap<>(LOCK_ORDER);
+        for (Sale sale : sales) {
+            SaleDailyRollupId key = rollupKey(sale, sale.getPaymentStatus());
+            if (key != null) {
+                deltas.computeIfAbsent(key, k -> new Delta()).add(sale, 1);
+            }
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Moves a sale from the rollup row of its previous payment status to the one of its
+     * current status. Must run in the transaction that changes the status.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordPaymentStatusChange(Sale sale, String previousStatus) {
+        SaleDailyRollupId previousKey = rollupKey(sale, previousStatus);
+        SaleDailyRollupId currentKey = rollupKey(sale, sale.getPaymentStatus());
+        if (previousKey == null || previousKey.equals(currentKey)) {
+            return;
+        }
+
+        Map<SaleDailyRollupId, Delta> deltas = new TreeMap<>(LOCK_ORDER);
+        deltas.computeIfAbsent(previousKey, k -> new Delta()).add(sale, -1);
+        deltas.computeIfAbsent(currentKey, k -> new Delta()).add(sale, 1);
+        apply(deltas);
+    }
+
+    /**
+     * Dashboard figures of [startDate, endDate): totals and per-product breakdown
+     */
+    @Transactional(readOnly = true)
+    public SalesSummaryDto summarize(LocalDateTime startDate, LocalDateTime endDate) {
+        logger.info("=== SALES SERVICE ===");
+        logger.info("SaleRollupBl.summarize called from {} to {}", startDate, endDate);
+
+        if (startDate == null || endDate == null || !startDate.isBefore(endDate)) {
+            throw new IllegalArgumentException("startDate must be before endDate");
+        }
+
+        // Full days [firstFullDay, endDay) come from the rollups, the edges from raw rows
+        LocalDate firstFullDay = startDate.equals(startDate.toLocalDate().atStartOfDay())
+                ? startDate.toLocalDate()
+                : startDate.toLocalDate().plusDays(1);
+        LocalDate endDay = endDate.toLocalDate();
+
+        Map<Integer, ProductSalesSummaryDto> byProduct = new TreeMap<>();
+        if (firstFullDay.isBefore(endDay)) {
+            merge(byProduct, saleDailyRollupRepository.summarizeByProduct(firstFullDay, endDay));
+            merge(byProduct, saleRepository.summarizeByProduct(startDate, firstFullDay.atStartOfDay()));
+            merge(byProduct, saleRepository.summarizeByProduct(endDay.atStartOfDay(), endDate));
+        } else {
+            // Less than one full day: nothing to take from the rollups
+            merge(byProduct, saleRepository.summarizeByProduct(startDate, endDate));
+        }
+
+        SalesSummaryDto summary = new SalesSummaryDto();
+        summary.setStartDate(startDate);
+        summary.setEndDate(endDate);
+        summary.setSaleCount(0L);
+        summary.setTotalQuantity(0L);
+        summary.setTotalAmount(BigDecimal.ZERO);
+        summary.setPaidAmount(BigDecimal.ZERO);
+        for (ProductSalesSummaryDto product : byProduct.values()) {
+            summary.setSaleCount(summary.getSaleCount() + product.getSaleCount());
+            summary.setTotalQuantity(summary.getTotalQuantity() + product.getTotalQuantity());
+            summary.setTotalAmount(summary.getTotalAmount().add(product.getTotalAmount()));
+            summary.setPaidAmount(summary.getPaidAmount().add(product.getPaidAmount()));
+        }
+        summary.setProducts(new ArrayList<>(byProduct.values()));
+        return summary;
+    }
+
+    /**
+     * Builds the rollups from the Sale table once (first start with this feature on an existing
+     * database), then records a marker. Rollup rows alone do not prove the rebuild ran: sales
+     * taken before it (by this or another instance) already wrote their deltas, so those are
+     * replaced by the rebuild. Sale writes wait for the few seconds this takes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfNeeded() {
+        if (saleRollupRebuildRepository.existsById(DAILY_ROLLUP)) {
+            return;
+        }
+
+        Integer rows = transactionTemplate.execute(status -> {
+            saleDailyRollupRepository.lockSales();
+            // Checked again under the lock: another instance may have rebuilt meanwhile
+            if (saleRollupRebuildRepository.existsById(DAILY_ROLLUP)) {
+                return null;
+            }
+            saleDailyRollupRepository.deleteAllRows();
+            int rebuilt = saleDailyRollupRepository.rebuildFromSales();
+            saleRollupRebuildRepository.save(new SaleRollupRebuild(DAILY_ROLLUP, LocalDateTime.now()));
+            return rebuilt;
+        });
+        if (rows != null) {
+            logger.info("Sales rollups rebuilt from the Sale table: {} rows", rows);
+        }
+    }
+
+    private void apply(Map<SaleDailyRollupId, Delta> deltas) {
+        for (Map.Entry<SaleDailyRollupId, Delta> entry : deltas.entrySet()) {
+            SaleDailyRollupId key = entry.getKey();
+            Delta delta = entry.getValue();
+            saleDailyRollupRepository.addDelta(key.getSaleDay(), key.getProductId(), key.getPaymentStatus(),
+                    delta.saleCount, delta.totalQuantity, delta.totalAmount);
+        }
+    }
+
+    private SaleDailyRollupId rollupKey(Sale sale, String paymentStatus) {
+        if (sale.getCreatedAt() == null) {
+            // Same rule as the rebuild: sales without createdAt are not in any day
+            return null;
+        }
+        return new SaleDailyRollupId(sale.getCreatedAt().toLocalDate(), sale.getProductId(),
+                paymentStatus != null ? paymentStatus : DEFAULT_PAYMENT_STATUS);
+    }
+
+    private void merge(Map<Integer, ProductSalesSummaryDto> byProduct, List<ProductSalesSummaryDto> rows) {
+        for (ProductSalesSummaryDto row : rows) {
+            byProduct.merge(row.getProductId(), row, (existing, added) -> {
+                existing.setSaleCount(existing.getSaleCount() + added.getSaleCount());
+                existing.setTotalQuantity(existing.getTotalQuantity() + added.getTotalQuantity());
+                existing.setTotalAmount(existing.getTotalAmount().add(added.getTotalAmount()));
+                existing.setPaidAmount(existing.getPaidAmount().add(added.getPaidAmount()));
+                return existing;
+            });
+        }
+    }
+
+    private static final class Delta {
+        private long saleCount;
+        private long totalQuantity;
+        private BigDecimal totalAmount = BigDecimal.ZERO;
+
+        private void add(Sale sale, int sign) {
+            saleCount += sign;
+            totalQuantity += (long) sign * (sale.getQuantity() != null ? sale.getQuantity() : 0);
+            if (sale.getTotalAmount() != null) {
+                totalAmount = totalAmount.add(sign > 0 ? sale.getTotalAmount() : sale.getTotalAmount().negate());
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.repository.IdNodeLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free Snowflake-style ID generator: 41 bits of milliseconds since 2025-01-01, 10 bits of
+ * node ID and 12 bits of sequence, i.e. 4096 IDs per millisecond per instance without any DB
+ * round trip. IDs are rendered as 13 base-36 characters, so "SALE-" + ID fits sale_number.
+ *
+ * The node ID comes from sales.id.node-id when set, otherwise it is leased from the
+ * id_node_lease table at startup and renewed in the background.
+ */
+@Component
+public class SnowflakeIdGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnowflakeIdGenerator.class);
+
+    // 2025-01-01T00:00:00Z
+    private static final long EPOCH_MS = 1735689600000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int MAX_CLAIM_ATTEMPTS = 10;
+
+    // Long.MAX_VALUE in base 36 has 13 digits; padding keeps string order equal to numeric order
+    private static final int ENCODED_LENGTH = 13;
+
+    @Autowired
+    private IdNodeLeaseRepository idNodeLeaseRepository;
+
+    @Value("${sales.id.node-id:-1}")
+    private int configuredNodeId;
+
+    @Value("${sales.id.lease-ms:60000}")
+    private long leaseMs;
+
+    private final String owner = "sales-" + UUID.randomUUID();
+
+    // (timestamp << SEQUENCE_BITS) | sequence of the last generated ID
+    private final AtomicLong lastState = new AtomicLong();
+
+    private volatile int nodeId = -1;
+
+    private volatile long leaseExpiresAt;
+
+    @PostConstruct
+    public void init() {
+        if (configuredNodeId >= 0) {
+            if (configuredNodeId > MAX_NODE_ID) {
+                throw new IllegalStateException("sales.id.node-id must be between 0 and " + MAX_NODE_ID);
+            }
+            nodeId = configuredNodeId;
+            leaseExpiresAt = Long.MAX_VALUE;
+            logger.info("Snowflake node ID configured: {}", nodeId);
+        } else {
+            acquireNodeLease();
+        }
+    }
+
+    /**
+     * @return A new unique ID as 13 upper-case base-36 characters, prefixed with the given prefix
+     */
+    public String nextId(String prefix) {
+        String encoded = Long.toString(nextId(), 36).toUpperCase();
+        return prefix + "0".repeat(ENCODED_LENGTH - encoded.length()) + encoded;
+    }
+
+    public long nextId() {
+        long nowMs = System.currentTimeMillis();
+        if (nowMs >= leaseExpiresAt) {
+            throw new IllegalStateException("Snowflake node ID lease expired, refusing to generate IDs");
+        }
+
+        long timestamp = nowMs - EPOCH_MS;
+        // Same millisecond, clock moved back or sequence exhausted: keep counting from the last
+        // state, an exhausted sequence carries into the timestamp bits (borrows the next millisecond)
+        long state = lastState.updateAndGet(last -> timestamp > (last >>> SEQUENCE_BITS)
+                ? timestamp << SEQUENCE_BITS
+                : last + 1);
+
+        return ((state >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                | ((long) nodeId << SEQUENCE_BITS)
+                | (state & SEQUENCE_MASK);
+    }
+
+    @Scheduled(fixedDelayString = "${sales.id.lease-renew-ms:10000}")
+    public void renewNodeLease() {
+        if (configuredNodeId >= 0 || nodeId < 0) {
+            return;
+        }
+
+        try {
+            LocalDateTime leaseUntil = LocalDateTime.now().plus(leaseMs, ChronoUnit.MILLIS);
+            long expiresAt = System.currentTimeMillis() + leaseMs;
+            if (idNodeLeaseRepository.renewLease(nodeId, owner, leaseUntil) == 1) {
+                leaseExpiresAt = expiresAt;
+            } else {
+                logger.error("Snowflake node ID {} was taken over by another instance, acquiring a new one", nodeId);
+                acquireNodeLease();
+            }
+        } catch (Exception e) {
+            // IDs keep flowing until the current lease runs out
+            logger.warn("Could not renew Snowflake node ID lease: {}", e.getMessage());
+        }
+    }
+
+    private void acquireNodeLease() {
+        // Another instance starting at the same time may claim the same new node ID, so retry a few times
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime leaseUntil = now.plus(leaseMs, ChronoUnit.MILLIS);
+            long expiresAt = System.currentTimeMillis() + leaseMs;
+
+            if (idNodeLeaseRepository.claimExpiredNode(owner, leaseUntil, now) == 1
+                    || idNodeLeaseRepository.claimNewNode(owner, leaseUntil, MAX_NODE_ID) == 1) {
+                nodeId = idNodeLeaseRepository.findFirstByOwner(owner)
+                        .orElseThrow(() -> new IllegalStateException("Claimed node ID lease not found"))
+                        .getNodeId();
+                leaseExpiresAt = expiresAt;
+                logger.info("Snowflake node ID leased: {} (owner {})", nodeId, owner);
+                return;
+            }
+        }
+        throw new IllegalStateException("No Snowflake node ID available after " + MAX_CLAIM_ATTEMPTS + " attempts");
+    }
+}
@@ -0,0 +1,123 @@
+package bo.edu.ucb.ms.sales.bl;
+
+import bo.edu.ucb.ms.sales.client.WarehouseEventClient;
+import bo.edu.ucb.ms.sales.dto.ProductChangeEventDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the product catalog cache correct without polling: follows the change event stream of
+ * every warehouse instance registered in Eureka and applies catalog changes to the cache.
+ * Dropped streams are resumed with the last event ID on the next reconcile, so no event is
+ * missed; if warehouse can no longer replay them it sends RESET and the cache is cleared.
+ */
+@Service
+@ConditionalOnProperty(name = "sales.product-cache.warehouse-events.enabled", havingValue = "true", matchIfMissing = true)
+public class WarehouseEventSubscriber {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarehouseEventSubscriber.class);
+
+    private static final String WAREHOUSE_SERVICE = "warehouse";
+
+    @Autowired
+    private DiscoveryClient discoveryClient;
+
+    @Autowired
+    private WarehouseEventClient warehouseEventClient;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    // One subscription per warehouse instance ID
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelayString = "${sales.product-cache.warehouse-events.reconcile-ms:10000}")
+    public void reconcileSubscriptions() {
+        List<ServiceInstance> instances;
+        try {
+            instances = discoveryClient.getInstances(WAREHOUSE_SERVICE);
+        } catch (Exception e) {
+            logger.warn("Unable to list warehouse instances: {}", e.getMessage());
+            return;
+        }
+
+        Set<String> liveInstanceIds = new HashSet<>();
+        for (ServiceInstance instance : instances) {
+            liveInstanceIds.add(instance.getInstanceId());
+            Subscription subscription = subscriptions.computeIfAbsent(instance.getInstanceId(), id -> new Subscription());
+            if (subscription.isDisconnected()) {
+                subscribe(instance, subscription);
+            }
+        }
+
+        // Instances gone from the registry: their streams end with them
+        subscriptions.entrySet().removeIf(entry -> {
+            if (liveInstanceIds.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().dispose();
+            logger.info("Warehouse instance {} left, event subscription removed", entry.getKey());
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscriptions.values().forEach(Subscription::dispose);
+    }
+
+    private void subscribe(ServiceInstance instance, Subscription subscription) {
+        logger.info("Subscribing to warehouse events of {} resuming after {}", instance.getUri(), subscription.lastEventId);
+
+        subscription.disposable = warehouseEventClient.streamProductEvents(instance.getUri(), subscription.lastEventId)
+                .subscribe(
+                        event -> apply(subscription, event),
+                        error -> logger.warn("Warehouse event stream of {} failed: {}", instance.getUri(), error.getMessage()),
+                        () -> logger.info("Warehouse event stream of {} ended", instance.getUri()));
+    }
+
+    private void apply(Subscription subscription, ServerSentEvent<ProductChangeEventDto> event) {
+        ProductChangeEventDto change = event.data();
+        if (ProductChangeEventDto.RESET.equals(change.getType())) {
+            logger.info("Warehouse event stream reset at sequence {}, clearing product cache", change.getSequence());
+            productCatalogCache.invalidateAll();
+        } else {
+            productCatalogCache.applyChange(change.getProductId(), change.getName(), change.getPrice());
+        }
+
+        // Only after the change is applied, so a reconnect replays anything not yet applied
+        subscription.lastEventId = event.id();
+    }
+
+    private static class Subscription {
+
+        private volatile String lastEventId;
+
+        private volatile Disposable disposable;
+
+        private boolean isDisconnected() {
+            return disposable == null || disposable.isDisposed();
+        }
+
+        private void dispose() {
+            if (disposable != null) {
+                disposable.dispose();
+            }
+        }
+    }
+}
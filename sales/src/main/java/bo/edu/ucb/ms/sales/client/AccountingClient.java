@@ -16,9 +16,16 @@ public interface AccountingClient {
     @PostMapping("/api/accounting/journal/batch")
     ResponseEntity<List<JournalDto>> createJournalEntries(@RequestBody List<JournalDto> journalEntries);
 
+    // Entries of reference numbers accounting has already posted this way are skipped, so it can be repeated
+    @Idempotent
+    @PostMapping("/api/accounting/journal/batch?skipPostedReferences=true")
+    ResponseEntity<List<JournalDto>> postJournalEntriesOnce(@RequestBody List<JournalDto> journalEntries);
+
+    @Idempotent
     @DeleteMapping("/api/accounting/journal/transaction/{transactionNumber}")
     ResponseEntity<Void> deleteJournalEntriesByTransaction(@PathVariable("transactionNumber") String transactionNumber);
 
+    @Idempotent
     @GetMapping("/api/accounting/journal/transaction/{transactionNumber}")
     ResponseEntity<List<JournalDto>> getJournalEntriesByTransaction(@PathVariable("transactionNumber") String transactionNumber);
 }
\ No newline at end of file
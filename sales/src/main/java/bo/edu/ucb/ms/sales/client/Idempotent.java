@@ -0,0 +1,16 @@
+package bo.edu.ucb.ms.sales.client;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a Feign client method that can be sent twice with the same effect as once: reads,
+ * deletes by reference and releases carrying a release key. Only these are retried on
+ * transient failures (see DownstreamRetry); every other call is made exactly once.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Idempotent {
+}
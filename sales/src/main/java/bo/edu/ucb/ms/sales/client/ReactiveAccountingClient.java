@@ -0,0 +1,63 @@
+package bo.edu.ucb.ms.sales.client;
+
+import bo.edu.ucb.ms.sales.config.RequestDeadline;
+import bo.edu.ucb.ms.sales.config.WireFormatConfig;
+import bo.edu.ucb.ms.sales.dto.JournalDto;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of AccountingClient for the reactive saga
+ */
+@Component
+@ConditionalOnProperty(name = "sales.saga.mode", havingValue = "reactive")
+public class ReactiveAccountingClient {
+
+    private final WebClient webClient;
+
+    // Shared with AccountingClient: one breaker and one bulkhead per downstream
+    private final CircuitBreaker circuitBreaker;
+
+    private final Bulkhead bulkhead;
+
+    // Smile (binary) bodies with JSON as fallback in Accept, like the Feign clients
+    private final boolean binaryWireFormat;
+
+    @Autowired
+    public ReactiveAccountingClient(WebClient.Builder loadBalancedWebClientBuilder,
+                                    CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                                    @Value("${sales.wire-format.binary:true}") boolean binaryWireFormat) {
+        this.webClient = loadBalancedWebClientBuilder.baseUrl("http://accounting").build();
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("accounting");
+        this.bulkhead = bulkheadRegistry.bulkhead("accounting");
+        this.binaryWireFormat = binaryWireFormat;
+    }
+
+    public Mono<List<JournalDto>> createJournalEntries(List<JournalDto> journalEntries, Long deadlineNanos) {
+        return webClient.post()
+                .uri("/api/accounting/journal/batch")
+                .headers(headers -> RequestDeadline.addHeader(headers, deadlineNanos))
+                .header(HttpHeaders.ACCEPT, binaryWireFormat ? WireFormatConfig.INTERNAL_ACCEPT : MediaType.APPLICATION_JSON_VALUE)
+                .contentType(binaryWireFormat ? WireFormatConfig.SMILE : MediaType.APPLICATION_JSON)
+                .bodyValue(journalEntries)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<List<JournalDto>>() {})
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+}
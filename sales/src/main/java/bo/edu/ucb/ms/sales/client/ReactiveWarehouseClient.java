@@ -0,0 +1,62 @@
+package bo.edu.ucb.ms.sales.client;
+
+import bo.edu.ucb.ms.sales.config.RequestDeadline;
+import bo.edu.ucb.ms.sales.config.WireFormatConfig;
+import bo.edu.ucb.ms.sales.dto.StockReservationDto;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of WarehouseClient for the reactive saga
+ */
+@Component
+@ConditionalOnProperty(name = "sales.saga.mode", havingValue = "reactive")
+public class ReactiveWarehouseClient {
+
+    private final WebClient webClient;
+
+    // Shared with WarehouseClient: one breaker and one bulkhead per downstream
+    private final CircuitBreaker circuitBreaker;
+
+    private final Bulkhead bulkhead;
+
+    // Smile (binary) bodies with JSON as fallback in Accept, like the Feign clients
+    private final boolean binaryWireFormat;
+
+    @Autowired
+    public ReactiveWarehouseClient(WebClient.Builder loadBalancedWebClientBuilder,
+                                   CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                                   @Value("${sales.wire-format.binary:true}") boolean binaryWireFormat) {
+        this.webClient = loadBalancedWebClientBuilder.baseUrl("http://warehouse").build();
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("warehouse");
+        this.bulkhead = bulkheadRegistry.bulkhead("warehouse");
+        this.binaryWireFormat = binaryWireFormat;
+    }
+
+    /**
+     * Validates the product, reserves the stock and returns the product snapshot in one call.
+     * The remaining part of the deadline (null: none) is sent along.
+     */
+    public Mono<StockReservationDto> reserveAndDescribe(Integer productId, Integer quantity, Long deadlineNanos) {
+        return webClient.post()
+                .uri("/api/warehouse/products/{productId}/stock/reservations?quantity={quantity}", productId, quantity)
+                .headers(headers -> RequestDeadline.addHeader(headers, deadlineNanos))
+                .header(HttpHeaders.ACCEPT, binaryWireFormat ? WireFormatConfig.INTERNAL_ACCEPT : MediaType.APPLICATION_JSON_VALUE)
+                .retrieve()
+                .bodyToMono(StockReservationDto.class)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+}
@@ -1,18 +1,23 @@
 package bo.edu.ucb.ms.sales.client;
 
 import bo.edu.ucb.ms.sales.dto.ProductDto;
+import bo.edu.ucb.ms.sales.dto.StockLineDto;
+import bo.edu.ucb.ms.sales.dto.StockReservationDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 @FeignClient(name = "warehouse")
 public interface WarehouseClient {
 
+    @Idempotent
     @GetMapping("/api/warehouse/products/{productId}")
     ResponseEntity<ProductDto> getProduct(@PathVariable("productId") Integer productId);
 
+    @Idempotent
     @PostMapping("/api/warehouse/products/{productId}/stock/check")
     ResponseEntity<Map<String, Object>> checkStockAvailability(
             @PathVariable("productId") Integer productId,
@@ -23,6 +28,30 @@ public interface WarehouseClient {
             @PathVariable("productId") Integer productId,
             @RequestParam("quantity") Integer quantity);
 
+    /**
+     * Validates the product, reserves the stock and returns the product snapshot in one call
+     */
+    @PostMapping("/api/warehouse/products/{productId}/stock/reservations")
+    ResponseEntity<StockReservationDto> reserveAndDescribe(
+            @PathVariable("productId") Integer productId,
+            @RequestParam("quantity") Integer quantity);
+
+    /**
+     * Reserves all lines in one transaction (all or nothing), locking rows in product ID order
+     */
+    @PostMapping("/api/warehouse/stock/reservations/batch")
+    ResponseEntity<List<StockReservationDto>> reserveStockBatch(@RequestBody List<StockLineDto> lines);
+
+    /**
+     * Releases all lines in one transaction. Warehouse applies a release key only once, so the
+     * release can be retried as long as the same key is sent.
+     */
+    @Idempotent
+    @PostMapping("/api/warehouse/stock/release/batch")
+    ResponseEntity<List<ProductDto>> releaseStockBatch(
+            @RequestHeader("Idempotency-Key") String releaseKey,
+            @RequestBody List<StockLineDto> lines);
+
     @PostMapping("/api/warehouse/products/{productId}/stock/release")
     ResponseEntity<ProductDto> releaseStock(
             @PathVariable("productId") Integer productId,
@@ -0,0 +1,37 @@
+package bo.edu.ucb.ms.sales.client;
+
+import bo.edu.ucb.ms.sales.dto.ProductChangeEventDto;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+
+/**
+ * Subscribes to the product change event stream of one warehouse instance. Unlike the Feign
+ * clients it is not load-balanced: sequences are per instance, so each instance is followed
+ * by its own subscription.
+ */
+@Component
+public class WarehouseEventClient {
+
+    private final WebClient webClient = WebClient.create();
+
+    public Flux<ServerSentEvent<ProductChangeEventDto>> streamProductEvents(URI instanceUri, String lastEventId) {
+        return webClient.get()
+                .uri(instanceUri.resolve("/api/warehouse/products/events"))
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .headers(headers -> {
+                    if (lastEventId != null) {
+                        headers.set("Last-Event-ID", lastEventId);
+                    }
+                })
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<ProductChangeEventDto>>() {})
+                // Heartbeat comments have no data
+                .filter(event -> event.data() != null);
+    }
+}
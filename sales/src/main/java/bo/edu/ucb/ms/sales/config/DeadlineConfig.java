@@ -0,0 +1,56 @@
+package bo.edu.ucb.ms.sales.config;
+
+import feign.Capability;
+import feign.RequestInterceptor;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Deadline propagation through the saga chain: every sale request gets a time budget
+ * (sales.saga.deadline-ms), Feign calls time out when it is spent and carry what is left to
+ * warehouse and accounting, and local transactions are cut at the same point.
+ */
+@Configuration
+public class DeadlineConfig {
+
+    @Bean
+    public FilterRegistrationBean<DeadlineFilter> deadlineFilter(@Value("${sales.saga.deadline-ms:25000}") long budgetMs) {
+        FilterRegistrationBean<DeadlineFilter> registration = new FilterRegistrationBean<>(new DeadlineFilter(budgetMs));
+        // Sale-creating endpoints only; exports and event streams are long-lived on purpose
+        registration.addUrlPatterns("/api/sales", "/api/sales/cart");
+        return registration;
+    }
+
+    /**
+     * Sends the remaining budget to the called service
+     */
+    @Bean
+    public RequestInterceptor deadlineRequestInterceptor() {
+        return template -> {
+            Long deadlineNanos = RequestDeadline.current();
+            if (deadlineNanos != null) {
+                template.header(RequestDeadline.HEADER,
+                        String.valueOf(Math.max(0, RequestDeadline.remainingMillis(deadlineNanos))));
+            }
+        };
+    }
+
+    @Bean
+    public Capability deadlineCapability() {
+        return new DeadlineFeignCapability();
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory,
+                                                         ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+        DeadlineJpaTransactionManager transactionManager = new DeadlineJpaTransactionManager(entityManagerFactory);
+        transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+        return transactionManager;
+    }
+}
@@ -0,0 +1,33 @@
+package bo.edu.ucb.ms.sales.config;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the connect and read timeouts of each Feign call at the remaining deadline of the sale,
+ * and does not send the call at all once it is spent. Public because Feign applies
+ * capabilities reflectively.
+ */
+public class DeadlineFeignCapability implements Capability {
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            Long deadlineNanos = RequestDeadline.current();
+            if (deadlineNanos == null) {
+                return client.execute(request, options);
+            }
+
+            RequestDeadline.checkNotExpired(deadlineNanos, request.httpMethod() + " " + request.url());
+            long remainingMs = RequestDeadline.remainingMillis(deadlineNanos);
+            Request.Options capped = new Request.Options(
+                    Math.min(options.connectTimeoutUnit().toMillis(options.connectTimeout()), remainingMs), TimeUnit.MILLISECONDS,
+                    Math.min(options.readTimeoutUnit().toMillis(options.readTimeout()), remainingMs), TimeUnit.MILLISECONDS,
+                    options.isFollowRedirects());
+            return client.execute(request, capped);
+        };
+    }
+}
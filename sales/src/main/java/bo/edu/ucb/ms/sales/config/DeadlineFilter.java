@@ -0,0 +1,55 @@
+package bo.edu.ucb.ms.sales.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Starts the time budget of an inbound sale: the configured budget, or less if the caller
+ * sent a smaller one in X-Deadline-Remaining-Ms. A request whose budget is already spent is
+ * answered 504 without doing any work.
+ */
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineFilter.class);
+
+    private final long budgetMs;
+
+    public DeadlineFilter(long budgetMs) {
+        this.budgetMs = budgetMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long requestBudgetMs = budgetMs;
+        String header = request.getHeader(RequestDeadline.HEADER);
+        if (header != null) {
+            try {
+                requestBudgetMs = Math.min(requestBudgetMs, Long.parseLong(header.trim()));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid {} header: {}", RequestDeadline.HEADER, header);
+            }
+        }
+
+        if (requestBudgetMs <= 0) {
+            logger.warn("Deadline of {} {} already exceeded on arrival", request.getMethod(), request.getRequestURI());
+            response.sendError(HttpStatus.GATEWAY_TIMEOUT.value(), "Deadline exceeded");
+            return;
+        }
+
+        RequestDeadline.start(requestBudgetMs);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package bo.edu.ucb.ms.sales.config;
+
+import feign.FeignException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.function.Predicate;
+
+/**
+ * Decides which errors count against a downstream circuit breaker. Only signs of an unhealthy
+ * service do: 5xx, I/O errors and timeouts. Business answers (4xx such as 404 product not
+ * found or 409 insufficient stock), our own bulkhead rejections and a sale deadline spent
+ * before the call are not the downstream's fault.
+ */
+public class DownstreamFailurePredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable throwable) {
+        if (throwable instanceof FeignException.FeignClientException) {
+            return false;
+        }
+        if (throwable instanceof WebClientResponseException responseException
+                && responseException.getStatusCode().is4xxClientError()) {
+            return false;
+        }
+        if (throwable instanceof BulkheadFullException) {
+            return false;
+        }
+        return !(throwable instanceof RequestDeadline.DeadlineExceededException);
+    }
+}
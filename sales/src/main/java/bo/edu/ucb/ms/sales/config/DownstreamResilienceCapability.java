@@ -0,0 +1,63 @@
+package bo.edu.ucb.ms.sales.config;
+
+import bo.edu.ucb.ms.sales.client.Idempotent;
+import feign.Capability;
+import feign.InvocationHandlerFactory;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.functions.CheckedSupplier;
+
+import java.lang.reflect.InvocationHandler;
+import java.util.Map;
+
+/**
+ * Runs every call of a Feign client through the circuit breaker and the bulkhead of its
+ * downstream (named after the client: warehouse, accounting). The call stays on the calling
+ * thread, so the sale deadline and trace context still apply, and Feign exceptions reach the
+ * caller unwrapped. Rejected calls fail fast with CallNotPermittedException (breaker open) or
+ * BulkheadFullException (too many concurrent calls). Methods marked @Idempotent are retried
+ * around both (see DownstreamRetry), so every retry goes through the breaker and the bulkhead
+ * again. Public because Feign applies capabilities reflectively.
+ */
+public class DownstreamResilienceCapability implements Capability {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    // By downstream name
+    private final Map<String, DownstreamRetry> retries;
+
+    public DownstreamResilienceCapability(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry,
+                                          Map<String, DownstreamRetry> retries) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.retries = retries;
+    }
+
+    @Override
+    public InvocationHandlerFactory enrich(InvocationHandlerFactory invocationHandlerFactory) {
+        return (target, dispatch) -> {
+            InvocationHandler delegate = invocationHandlerFactory.create(target, dispatch);
+            CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(target.name());
+            Bulkhead bulkhead = bulkheadRegistry.bulkhead(target.name());
+            DownstreamRetry retry = retries.get(target.name());
+
+            return (proxy, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    // equals, hashCode, toString
+                    return delegate.invoke(proxy, method, args);
+                }
+                // Breaker outside the bulkhead: an open breaker rejects before taking a permit
+                CheckedSupplier<Object> call = CircuitBreaker.decorateCheckedSupplier(circuitBreaker,
+                        Bulkhead.decorateCheckedSupplier(bulkhead, () -> delegate.invoke(proxy, method, args)));
+                if (retry != null && method.isAnnotationPresent(Idempotent.class)) {
+                    return retry.call(call);
+                }
+                return call.get();
+            };
+        };
+    }
+}
@@ -0,0 +1,85 @@
+package bo.edu.ucb.ms.sales.config;
+
+import feign.Capability;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-downstream circuit breakers and bulkheads (resilience4j.* in application.properties),
+ * and retries of idempotent calls (sales.saga.retry.*).
+ * Breaker state, calls and not-permitted calls are exported by resilience4j-micrometer as
+ * resilience4j.circuitbreaker.*; bulkhead rejections are counted here as
+ * sales.downstream.bulkhead.rejections, since resilience4j only exports the permits left.
+ */
+@Configuration
+public class DownstreamResilienceConfig {
+
+    private static final List<String> DOWNSTREAMS = List.of("warehouse", "accounting");
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sales.saga.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
+    @Value("${sales.saga.retry.initial-backoff-ms:100}")
+    private long retryInitialBackoffMs;
+
+    @Value("${sales.saga.retry.max-backoff-ms:2000}")
+    private long retryMaxBackoffMs;
+
+    @Value("${sales.saga.retry.jitter-factor:0.5}")
+    private double retryJitterFactor;
+
+    @Value("${sales.saga.retry.min-remaining-ms:500}")
+    private long retryMinRemainingMs;
+
+    @Value("${sales.saga.retry.budget-ratio:0.1}")
+    private double retryBudgetRatio;
+
+    @Value("${sales.saga.retry.budget-max-tokens:10}")
+    private double retryBudgetMaxTokens;
+
+    @Bean
+    public Capability downstreamResilienceCapability() {
+        // Doubles from the initial backoff up to the maximum, each wait randomized by +/- the jitter factor
+        IntervalFunction backoff = IntervalFunction.ofExponentialRandomBackoff(
+                retryInitialBackoffMs, 2.0, retryJitterFactor, retryMaxBackoffMs);
+
+        Map<String, DownstreamRetry> retries = new HashMap<>();
+        for (String downstream : DOWNSTREAMS) {
+            retries.put(downstream, new DownstreamRetry(downstream, retryMaxAttempts, backoff, retryMinRemainingMs,
+                    retryBudgetRatio, retryBudgetMaxTokens, meterRegistry));
+        }
+        return new DownstreamResilienceCapability(circuitBreakerRegistry, bulkheadRegistry, retries);
+    }
+
+    @PostConstruct
+    public void bindBulkheadRejectionMetrics() {
+        for (String downstream : DOWNSTREAMS) {
+            Counter rejections = Counter.builder("sales.downstream.bulkhead.rejections")
+                    .description("Calls rejected because the downstream bulkhead was full")
+                    .tag("downstream", downstream)
+                    .register(meterRegistry);
+            bulkheadRegistry.bulkhead(downstream).getEventPublisher().onCallRejected(event -> rejections.increment());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package bo.edu.ucb.ms.sales.config;
+
+import feign.FeignException;
+import feign.RetryableException;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.core.functions.CheckedSupplier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retry policy of one downstream, applied to its idempotent calls only. A call is attempted
+ * again on transient failures (I/O errors, timeouts and 5xx, including no instance available)
+ * after a jittered exponential backoff, but never:
+ * - beyond max-attempts,
+ * - when the sale deadline would not leave min-remaining-ms for the attempt after the backoff,
+ * - when the retry budget is spent. Every first attempt adds budget-ratio of a token, every
+ *   retry takes a whole one (at most budget-max-tokens saved up), so retries stay a bounded
+ *   fraction of the traffic and cannot multiply the load on a downstream that is already down.
+ * Counted as sales.downstream.retries{downstream, outcome}: outcome retried, or the reason it
+ * was not (attempts_exhausted, deadline, budget_exhausted).
+ */
+class DownstreamRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownstreamRetry.class);
+
+    private final String downstream;
+
+    private final int maxAttempts;
+
+    private final IntervalFunction backoff;
+
+    private final long minRemainingMs;
+
+    private final double budgetRatio;
+
+    private final double budgetMaxTokens;
+
+    // Starts full, so retries are possible before any traffic has built up the budget
+    private double budgetTokens;
+
+    private final Counter retried;
+
+    private final Counter attemptsExhausted;
+
+    private final Counter deadlineSkipped;
+
+    private final Counter budgetExhausted;
+
+    DownstreamRetry(String downstream, int maxAttempts, IntervalFunction backoff, long minRemainingMs,
+                    double budgetRatio, double budgetMaxTokens, MeterRegistry meterRegistry) {
+        this.downstream = downstream;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.minRemainingMs = minRemainingMs;
+        this.budgetRatio = budgetRatio;
+        this.budgetMaxTokens = budgetMaxTokens;
+        this.budgetTokens = budgetMaxTokens;
+        this.retried = counter(meterRegistry, "retried");
+        this.attemptsExhausted = counter(meterRegistry, "attempts_exhausted");
+        this.deadlineSkipped = counter(meterRegistry, "deadline");
+        this.budgetExhausted = counter(meterRegistry, "budget_exhausted");
+    }
+
+    Object call(CheckedSupplier<Object> attempt) throws Throwable {
+        depositBudget();
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                return attempt.get();
+            } catch (Throwable e) {
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                if (attemptNumber >= maxAttempts) {
+                    attemptsExhausted.increment();
+                    throw e;
+                }
+
+                long backoffMs = backoff.apply(attemptNumber);
+                if (RequestDeadline.remainingMillis() - backoffMs < minRemainingMs) {
+                    deadlineSkipped.increment();
+                    throw e;
+                }
+                if (!withdrawBudget()) {
+                    budgetExhausted.increment();
+                    throw e;
+                }
+
+                retried.increment();
+                logger.warn("Call to {} failed (attempt {} of {}), retrying in {} ms: {}",
+                           downstream, attemptNumber, maxAttempts, backoffMs, e.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Failures that may go away on their own: I/O errors and timeouts (RetryableException) and
+     * 5xx answers (FeignServerException, also the 503 of the load balancer when no instance is
+     * up). 4xx answers, open breakers, full bulkheads and a spent deadline are final.
+     */
+    static boolean isTransient(Throwable e) {
+        return e instanceof RetryableException || e instanceof FeignException.FeignServerException;
+    }
+
+    private synchronized void depositBudget() {
+        budgetTokens = Math.min(budgetMaxTokens, budgetTokens + budgetRatio);
+    }
+
+    private synchronized boolean withdrawBudget() {
+        if (budgetTokens < 1.0) {
+            return false;
+        }
+        budgetTokens -= 1.0;
+        return true;
+    }
+
+    private Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("sales.downstream.retries")
+                .description("Retries of idempotent downstream calls, and retries not made by reason")
+                .tag("downstream", downstream)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
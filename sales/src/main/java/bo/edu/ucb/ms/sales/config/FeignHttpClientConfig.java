@@ -0,0 +1,90 @@
+package bo.edu.ucb.ms.sales.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.io.DefaultHttpClientConnectionOperator;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.openfeign.clientconfig.HttpClient5FeignConfiguration.HttpClientBuilderCustomizer;
+import org.springframework.cloud.openfeign.support.FeignHttpClientProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pooled Apache HttpClient 5 behind WarehouseClient and AccountingClient (feign-hc5 replaces
+ * the default HttpURLConnection client). Connections are kept alive and reused per route
+ * (one route per service instance), bounded by spring.cloud.openfeign.httpclient.max-connections
+ * and max-connections-per-route, and closed once idle for idle-eviction-ms, before the server
+ * side drops them. Connections idle longer than validate-after-inactivity-ms are checked before
+ * reuse. Per-call connect/read timeouts still come from the Feign options (and the sale deadline).
+ * Metrics, with httpclient=feign:
+ * - httpcomponents.httpclient.pool.total.max / .total.connections{state=leased|available} /
+ *   .total.pending / .route.max.default: pool size, leased connections, waiting leases
+ * - sales.http.client.pool.lease.wait (timer): time waited for a pooled connection
+ */
+@Configuration
+public class FeignHttpClientConfig {
+
+    private static final String POOL_NAME = "feign";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sales.http-client.idle-eviction-ms:10000}")
+    private long idleEvictionMs;
+
+    @Value("${sales.http-client.validate-after-inactivity-ms:2000}")
+    private long validateAfterInactivityMs;
+
+    @Bean
+    public HttpClientConnectionManager feignConnectionManager(FeignHttpClientProperties properties) {
+        Timer leaseWait = Timer.builder("sales.http.client.pool.lease.wait")
+                .description("Time waited to lease a pooled connection")
+                .tag("httpclient", POOL_NAME)
+                .register(meterRegistry);
+
+        MeteredPoolingConnectionManager connectionManager = new MeteredPoolingConnectionManager(
+                new DefaultHttpClientConnectionOperator(null, null, RegistryBuilder.<TlsSocketStrategy>create()
+                        .register(URIScheme.HTTPS.id, DefaultClientTlsStrategy.createSystemDefault())
+                        .build()),
+                PoolConcurrencyPolicy.valueOf(properties.getHc5().getPoolConcurrencyPolicy().name()),
+                PoolReusePolicy.valueOf(properties.getHc5().getPoolReusePolicy().name()),
+                TimeValue.of(properties.getTimeToLive(), properties.getTimeToLiveUnit()),
+                leaseWait);
+        connectionManager.setMaxTotal(properties.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxConnectionsPerRoute());
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+                .setSoTimeout(Timeout.of(properties.getHc5().getSocketTimeout(), properties.getHc5().getSocketTimeoutUnit()))
+                .setTcpNoDelay(true)
+                .build());
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setTimeToLive(TimeValue.of(properties.getTimeToLive(), properties.getTimeToLiveUnit()))
+                .setValidateAfterInactivity(TimeValue.ofMilliseconds(validateAfterInactivityMs))
+                .build());
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, POOL_NAME).bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean
+    public HttpClientBuilderCustomizer feignHttpClientCustomizer() {
+        // Expired connections are already evicted by the Spring Cloud client setup. HttpClient's
+        // own retries (it repeats 503 answers and requests on dropped connections) are turned
+        // off: only DownstreamRetry retries, within its budget and the sale deadline
+        return builder -> builder
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictionMs))
+                .disableAutomaticRetries();
+    }
+}
@@ -0,0 +1,34 @@
+package bo.edu.ucb.ms.sales.config;
+
+import bo.edu.ucb.ms.sales.bl.ProductCatalogCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Change notifications for the product cache, as an actuator endpoint so it is only reachable
+ * on the sales instance port and never through the gateway routes:
+ * POST /actuator/productcache {"productIds": [1, 2]} drops these products,
+ * DELETE /actuator/productcache drops every entry.
+ */
+@Component
+@Endpoint(id = "productcache")
+public class ProductCacheEndpoint {
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @WriteOperation
+    public void invalidate(List<Integer> productIds) {
+        productCatalogCache.invalidateAll(productIds);
+    }
+
+    @DeleteOperation
+    public void invalidateAll() {
+        productCatalogCache.invalidateAll();
+    }
+}
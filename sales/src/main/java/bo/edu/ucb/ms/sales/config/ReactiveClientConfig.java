@@ -0,0 +1,27 @@
+package bo.edu.ucb.ms.sales.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Non-blocking, Eureka load-balanced WebClient used by the reactive saga
+ * (sales.saga.mode=reactive). Service names resolve like in the Feign clients.
+ * Boot's customizers are applied, so calls are observed and carry the trace context.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sales.saga.mode", havingValue = "reactive")
+public class ReactiveClientConfig {
+
+    @Bean
+    @LoadBalanced
+    public WebClient.Builder loadBalancedWebClientBuilder(ObjectProvider<WebClientCustomizer> customizers) {
+        WebClient.Builder builder = WebClient.builder();
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        return builder;
+    }
+}
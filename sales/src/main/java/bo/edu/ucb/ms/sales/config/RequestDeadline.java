@@ -0,0 +1,115 @@
+package bo.edu.ucb.ms.sales.config;
+
+import io.micrometer.context.ContextRegistry;
+import org.springframework.http.HttpHeaders;
+
+import java.util.function.Supplier;
+
+/**
+ * Time budget of the sale being processed on the current thread. The budget starts when the
+ * request arrives (DeadlineFilter) and follows the saga to async saga threads and Reactor
+ * operators through context propagation. The remaining part is sent to warehouse and
+ * accounting in the X-Deadline-Remaining-Ms header, so every hop stops once it is spent.
+ */
+public final class RequestDeadline {
+
+    public static final String HEADER = "X-Deadline-Remaining-Ms";
+
+    // Absolute deadline in System.nanoTime() terms, null when the work has no budget
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    static {
+        ContextRegistry.getInstance().registerThreadLocalAccessor("sales.request-deadline",
+                DEADLINE_NANOS::get, DEADLINE_NANOS::set, DEADLINE_NANOS::remove);
+    }
+
+    private RequestDeadline() {
+    }
+
+    public static void start(long budgetMs) {
+        DEADLINE_NANOS.set(System.nanoTime() + budgetMs * 1_000_000L);
+    }
+
+    public static void set(Long deadlineNanos) {
+        if (deadlineNanos != null) {
+            DEADLINE_NANOS.set(deadlineNanos);
+        } else {
+            DEADLINE_NANOS.remove();
+        }
+    }
+
+    public static void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    /**
+     * Deadline of the current thread, or null if it has none
+     */
+    public static Long current() {
+        return DEADLINE_NANOS.get();
+    }
+
+    /**
+     * Milliseconds left of the given deadline (negative once spent), Long.MAX_VALUE if null
+     */
+    public static long remainingMillis(Long deadlineNanos) {
+        if (deadlineNanos == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.floorDiv(deadlineNanos - System.nanoTime(), 1_000_000L);
+    }
+
+    public static long remainingMillis() {
+        return remainingMillis(current());
+    }
+
+    /**
+     * Fails fast when the budget is already spent, before any work is started for it
+     */
+    public static void checkNotExpired(Long deadlineNanos, String operation) {
+        if (remainingMillis(deadlineNanos) <= 0) {
+            throw new DeadlineExceededException("Deadline exceeded before " + operation);
+        }
+    }
+
+    /**
+     * Runs work with no deadline on the current thread, then restores it. For the saga log
+     * writes and compensations: undoing a sale must not be cut short by the budget of the
+     * request that made it.
+     */
+    public static <T> T withoutDeadline(Supplier<T> work) {
+        Long deadlineNanos = DEADLINE_NANOS.get();
+        DEADLINE_NANOS.remove();
+        try {
+            return work.get();
+        } finally {
+            set(deadlineNanos);
+        }
+    }
+
+    public static void withoutDeadline(Runnable work) {
+        withoutDeadline(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static void addHeader(HttpHeaders headers, Long deadlineNanos) {
+        if (deadlineNanos != null) {
+            headers.set(HEADER, String.valueOf(Math.max(0, remainingMillis(deadlineNanos))));
+        }
+    }
+
+    /**
+     * The time budget of the sale ran out before or during some step
+     */
+    public static class DeadlineExceededException extends RuntimeException {
+        public DeadlineExceededException(String message) {
+            super(message);
+        }
+
+        public DeadlineExceededException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
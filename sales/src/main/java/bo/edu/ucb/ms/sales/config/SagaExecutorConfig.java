@@ -0,0 +1,56 @@
+package bo.edu.ucb.ms.sales.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Bounded executor for asynchronous sagas. When both the pool and the queue are full the
+ * submission is rejected, so a burst is shed with 503 instead of piling up in memory.
+ *
+ * With spring.threads.virtual.enabled=true (Java 21) every saga gets its own virtual thread
+ * instead; only the number of concurrent sagas is bounded, there is no pool to size.
+ *
+ * Both carry the trace context of the submitting request over to the saga thread.
+ */
+@Configuration
+public class SagaExecutorConfig {
+
+    @Bean(name = "sagaExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor sagaExecutor(
+            @Value("${sales.saga.async.core-pool-size:16}") int corePoolSize,
+            @Value("${sales.saga.async.max-pool-size:64}") int maxPoolSize,
+            @Value("${sales.saga.async.queue-capacity:1000}") int queueCapacity) {
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("saga-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "sagaExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor virtualSagaExecutor(
+            @Value("${sales.saga.async.max-concurrency:10000}") int maxConcurrency) {
+
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("saga-");
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.setConcurrencyLimit(maxConcurrency);
+        executor.setRejectTasksWhenLimitReached(true);
+        executor.setTaskTerminationTimeout(30000);
+        return executor;
+    }
+}
@@ -0,0 +1,73 @@
+package bo.edu.ucb.ms.sales.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import feign.Capability;
+import feign.RequestInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary wire format between sales, warehouse and accounting. Internal calls send their bodies
+ * as Smile (binary JSON, application/x-jackson-smile) and ask for Smile responses, with JSON
+ * as fallback in Accept, so a service without Smile support still answers. The sales API
+ * itself negotiates the same way: JSON stays the default for clients behind the gateway.
+ * Smile keeps the Jackson mapping of the DTOs (the mapper is built from Boot's Jackson
+ * builder), writes BigDecimal amounts as exact binary decimals and field names repeated in a
+ * batch only once. Turned off (plain JSON) with sales.wire-format.binary=false.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    public static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+
+    // Smile preferred, JSON accepted
+    public static final String INTERNAL_ACCEPT = SMILE_VALUE + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.9";
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(smileMapper(builder));
+    }
+
+    /**
+     * Smile codecs of the reactive clients, with the same mapping as the Feign clients
+     */
+    @Bean
+    public CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper smileMapper = smileMapper(builder);
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper, SMILE));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper, SMILE));
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sales.wire-format.binary", havingValue = "true", matchIfMissing = true)
+    public RequestInterceptor wireFormatRequestInterceptor() {
+        return template -> {
+            if (!template.headers().containsKey(HttpHeaders.ACCEPT)) {
+                template.header(HttpHeaders.ACCEPT, INTERNAL_ACCEPT);
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sales.wire-format.binary", havingValue = "true", matchIfMissing = true)
+    public Capability wireFormatCapability() {
+        return new WireFormatFeignCapability();
+    }
+
+    private ObjectMapper smileMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new SmileFactory()).build();
+    }
+}
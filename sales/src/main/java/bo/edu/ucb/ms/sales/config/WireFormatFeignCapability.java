@@ -0,0 +1,23 @@
+package bo.edu.ucb.ms.sales.config;
+
+import feign.Capability;
+import feign.codec.Encoder;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Makes the Feign encoder write request bodies as Smile: the converter is chosen by the
+ * request Content-Type, so it is set before encoding unless the client method set its own.
+ * Public because Feign applies capabilities reflectively.
+ */
+public class WireFormatFeignCapability implements Capability {
+
+    @Override
+    public Encoder enrich(Encoder encoder) {
+        return (object, bodyType, template) -> {
+            if (!template.headers().containsKey(HttpHeaders.CONTENT_TYPE)) {
+                template.header(HttpHeaders.CONTENT_TYPE, WireFormatConfig.SMILE_VALUE);
+            }
+            encoder.encode(object, bodyType, template);
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package bo.edu.ucb.ms.sales.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * DTO class returned after a cart sale is processed
+ * Contains one SaleDto per cart line
+ */
+public class CartSaleDto {
+
+    private List<SaleDto> sales;
+    private BigDecimal totalAmount;
+
+    // Default constructor
+    public CartSaleDto() {}
+
+    // Constructor with required fields
+    public CartSaleDto(List<SaleDto> sales, BigDecimal totalAmount) {
+        this.sales = sales;
+        this.totalAmount = totalAmount;
+    }
+
+    // Getters and Setters
+
+    public List<SaleDto> getSales() {
+        return sales;
+    }
+
+    public void setSales(List<SaleDto> sales) {
+        this.sales = sales;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    @Override
+    public String toString() {
+        return "CartSaleDto{" +
+                "sales=" + sales +
+                ", totalAmount=" + totalAmount +
+                '}';
+    }
+}
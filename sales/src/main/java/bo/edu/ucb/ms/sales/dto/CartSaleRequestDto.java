@@ -0,0 +1,41 @@
+package bo.edu.ucb.ms.sales.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+
+/**
+ * DTO class for a multi-line (cart) sale request
+ * Every line becomes its own Sale, all lines succeed or fail together
+ */
+public class CartSaleRequestDto {
+
+    @NotEmpty(message = "Cart must contain at least one line")
+    @Valid
+    private List<StockLineDto> lines;
+
+    // Default constructor
+    public CartSaleRequestDto() {}
+
+    // Constructor with required fields
+    public CartSaleRequestDto(List<StockLineDto> lines) {
+        this.lines = lines;
+    }
+
+    // Getters and Setters
+
+    public List<StockLineDto> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<StockLineDto> lines) {
+        this.lines = lines;
+    }
+
+    @Override
+    public String toString() {
+        return "CartSaleRequestDto{" +
+                "lines=" + lines +
+                '}';
+    }
+}
@@ -0,0 +1,81 @@
+package bo.edu.ucb.ms.sales.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO class with the sales of one product over a date range
+ */
+public class ProductSalesSummaryDto {
+
+    private Integer productId;
+    private Long saleCount;
+    private Long totalQuantity;
+    private BigDecimal totalAmount;
+    private BigDecimal paidAmount;
+
+    // Default constructor
+    public ProductSalesSummaryDto() {}
+
+    // Constructor used by the aggregate JPQL queries
+    public ProductSalesSummaryDto(Integer productId, Long saleCount, Long totalQuantity,
+                                  BigDecimal totalAmount, BigDecimal paidAmount) {
+        this.productId = productId;
+        this.saleCount = saleCount;
+        this.totalQuantity = totalQuantity;
+        this.totalAmount = totalAmount != null ? totalAmount : BigDecimal.ZERO;
+        this.paidAmount = paidAmount != null ? paidAmount : BigDecimal.ZERO;
+    }
+
+    // Getters and Setters
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public Long getSaleCount() {
+        return saleCount;
+    }
+
+    public void setSaleCount(Long saleCount) {
+        this.saleCount = saleCount;
+    }
+
+    public Long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public void setTotalQuantity(Long totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public BigDecimal getPaidAmount() {
+        return paidAmount;
+    }
+
+    public void setPaidAmount(BigDecimal paidAmount) {
+        this.paidAmount = paidAmount;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductSalesSummaryDto{" +
+                "productId=" + productId +
+                ", saleCount=" + saleCount +
+                ", totalQuantity=" + totalQuantity +
+                ", totalAmount=" + totalAmount +
+                ", paidAmount=" + paidAmount +
+                '}';
+    }
+}
@@ -0,0 +1,102 @@
+package bo.edu.ucb.ms.sales.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO class for the status of an asynchronous sale saga
+ * Returned by POST /api/sales?async=true (202 Accepted) and GET /api/sales/saga/{sagaId}
+ */
+public class SagaStatusDto {
+
+    public enum Status {
+        ACCEPTED, RUNNING, COMPLETED, FAILED
+    }
+
+    private String sagaId;
+    private Status status;
+    private Long saleId;
+    private String saleNumber;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    // Default constructor
+    public SagaStatusDto() {}
+
+    // Constructor with required fields
+    public SagaStatusDto(String sagaId, Status status) {
+        this.sagaId = sagaId;
+        this.status = status;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    // Getters and Setters
+
+    public String getSagaId() {
+        return sagaId;
+    }
+
+    public void setSagaId(String sagaId) {
+        this.sagaId = sagaId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getSaleId() {
+        return saleId;
+    }
+
+    public void setSaleId(Long saleId) {
+        this.saleId = saleId;
+    }
+
+    public String getSaleNumber() {
+        return saleNumber;
+    }
+
+    public void setSaleNumber(String saleNumber) {
+        this.saleNumber = saleNumber;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "SagaStatusDto{" +
+                "sagaId='" + sagaId + '\'' +
+                ", status=" + status +
+                ", saleId=" + saleId +
+                ", saleNumber='" + saleNumber + '\'' +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
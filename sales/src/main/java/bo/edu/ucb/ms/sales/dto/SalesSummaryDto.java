@@ -0,0 +1,93 @@
+package bo.edu.ucb.ms.sales.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO class with the sales dashboard figures of a date range [startDate, endDate)
+ */
+public class SalesSummaryDto {
+
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private Long saleCount;
+    private Long totalQuantity;
+    private BigDecimal totalAmount;
+    private BigDecimal paidAmount;
+    private List<ProductSalesSummaryDto> products;
+
+    // Default constructor
+    public SalesSummaryDto() {}
+
+    // Getters and Setters
+
+    public LocalDateTime getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDateTime startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDateTime getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDateTime endDate) {
+        this.endDate = endDate;
+    }
+
+    public Long getSaleCount() {
+        return saleCount;
+    }
+
+    public void setSaleCount(Long saleCount) {
+        this.saleCount = saleCount;
+    }
+
+    public Long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public void setTotalQuantity(Long totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public BigDecimal getPaidAmount() {
+        return paidAmount;
+    }
+
+    public void setPaidAmount(BigDecimal paidAmount) {
+        this.paidAmount = paidAmount;
+    }
+
+    public List<ProductSalesSummaryDto> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<ProductSalesSummaryDto> products) {
+        this.products = products;
+    }
+
+    @Override
+    public String toString() {
+        return "SalesSummaryDto{" +
+                "startDate=" + startDate +
+                ", endDate=" + endDate +
+                ", saleCount=" + saleCount +
+                ", totalQuantity=" + totalQuantity +
+                ", totalAmount=" + totalAmount +
+                ", paidAmount=" + paidAmount +
+                ", products=" + products +
+                '}';
+    }
+}
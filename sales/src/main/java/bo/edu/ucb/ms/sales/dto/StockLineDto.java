@@ -0,0 +1,52 @@
+package bo.edu.ucb.ms.sales.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * LOCAL DTO class for one cart line, sent to the Warehouse bulk reservation and release endpoints
+ */
+public class StockLineDto {
+
+    @NotNull(message = "Product ID is required")
+    private Integer productId;
+
+    @NotNull(message = "Quantity is required")
+    @Min(value = 1, message = "Quantity must be greater than 0")
+    private Integer quantity;
+
+    // Default constructor
+    public StockLineDto() {}
+
+    // Constructor with required fields
+    public StockLineDto(Integer productId, Integer quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    @Override
+    public String toString() {
+        return "StockLineDto{" +
+                "productId=" + productId +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
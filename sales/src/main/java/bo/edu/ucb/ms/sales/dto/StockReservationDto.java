@@ -0,0 +1,82 @@
+package bo.edu.ucb.ms.sales.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * LOCAL DTO class for stock reservations between Sales and Warehouse services
+ * Product snapshot (price, remaining stock) taken atomically with the reservation
+ */
+public class StockReservationDto {
+
+    private Integer productId;
+    private String name;
+    private BigDecimal price;
+    private Integer reservedQuantity;
+    private Integer remainingStock;
+
+    // Default constructor
+    public StockReservationDto() {}
+
+    // Constructor with all fields
+    public StockReservationDto(Integer productId, String name, BigDecimal price,
+                               Integer reservedQuantity, Integer remainingStock) {
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.reservedQuantity = reservedQuantity;
+        this.remainingStock = remainingStock;
+    }
+
+    // Getters and Setters
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public Integer getReservedQuantity() {
+        return reservedQuantity;
+    }
+
+    public void setReservedQuantity(Integer reservedQuantity) {
+        this.reservedQuantity = reservedQuantity;
+    }
+
+    public Integer getRemainingStock() {
+        return remainingStock;
+    }
+
+    public void setRemainingStock(Integer remainingStock) {
+        this.remainingStock = remainingStock;
+    }
+
+    @Override
+    public String toString() {
+        return "StockReservationDto{" +
+                "productId=" + productId +
+                ", name='" + name + '\'' +
+                ", price=" + price +
+                ", reservedQuantity=" + reservedQuantity +
+                ", remainingStock=" + remainingStock +
+                '}';
+    }
+}
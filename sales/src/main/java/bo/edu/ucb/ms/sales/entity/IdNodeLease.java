@@ -0,0 +1,60 @@
+package bo.edu.ucb.ms.sales.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lease on one Snowflake node ID. Every running instance holds one row, so instances started
+ * on dynamic ports still generate disjoint IDs.
+ */
+@Entity
+@Table(name = "id_node_lease")
+public class IdNodeLease {
+
+    @Id
+    @Column(name = "node_id")
+    private Integer nodeId;
+
+    @Column(name = "owner", length = 100, nullable = false)
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+
+    // Default constructor
+    public IdNodeLease() {}
+
+    // Getters and Setters
+    public Integer getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(Integer nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    @Override
+    public String toString() {
+        return "IdNodeLease{" +
+                "nodeId=" + nodeId +
+                ", owner='" + owner + '\'' +
+                ", leaseUntil=" + leaseUntil +
+                '}';
+    }
+}
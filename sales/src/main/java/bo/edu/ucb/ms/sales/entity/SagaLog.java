@@ -0,0 +1,212 @@
+package bo.edu.ucb.ms.sales.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Durable record of a sale saga. A row is written as soon as stock is reserved, so that a
+ * failed or crashed saga can always be compensated by the recovery worker.
+ */
+@Entity
+@Table(name = "saga_log", indexes = {
+    @Index(name = "idx_saga_log_status_next_attempt", columnList = "status, next_attempt_at")
+})
+public class SagaLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "saga_log_seq")
+    @SequenceGenerator(name = "saga_log_seq", sequenceName = "saga_log_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "saga_id", length = 36, unique = true, nullable = false)
+    private String sagaId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 30, nullable = false)
+    private Status status = Status.IN_PROGRESS;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "last_step", length = 30, nullable = false)
+    private Step lastStep = Step.STOCK_RESERVED;
+
+    // Reserved stock as "productId:quantity" pairs separated by commas
+    @Column(name = "stock_lines", columnDefinition = "TEXT", nullable = false)
+    private String stockLines;
+
+    // Sale numbers used as journal reference numbers, separated by commas
+    @Column(name = "reference_numbers", columnDefinition = "TEXT", nullable = false)
+    private String referenceNumbers;
+
+    @Column(name = "stock_released", nullable = false)
+    private boolean stockReleased = false;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "lease_owner", length = 100)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum Status {
+        IN_PROGRESS, COMPLETED, COMPENSATION_PENDING, COMPENSATED, COMPENSATION_FAILED
+    }
+
+    public enum Step {
+        STOCK_RESERVED, JOURNAL_POSTED, SALE_SAVED, FAILED
+    }
+
+    // Default constructor
+    public SagaLog() {}
+
+    public SagaLog(String sagaId, String stockLines, String referenceNumbers) {
+        this.sagaId = sagaId;
+        this.stockLines = stockLines;
+        this.referenceNumbers = referenceNumbers;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSagaId() {
+        return sagaId;
+    }
+
+    public void setSagaId(String sagaId) {
+        this.sagaId = sagaId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Step getLastStep() {
+        return lastStep;
+    }
+
+    public void setLastStep(Step lastStep) {
+        this.lastStep = lastStep;
+    }
+
+    public String getStockLines() {
+        return stockLines;
+    }
+
+    public void setStockLines(String stockLines) {
+        this.stockLines = stockLines;
+    }
+
+    public String getReferenceNumbers() {
+        return referenceNumbers;
+    }
+
+    public void setReferenceNumbers(String referenceNumbers) {
+        this.referenceNumbers = referenceNumbers;
+    }
+
+    public boolean isStockReleased() {
+        return stockReleased;
+    }
+
+    public void setStockReleased(boolean stockReleased) {
+        this.stockReleased = stockReleased;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "SagaLog{" +
+                "id=" + id +
+                ", sagaId='" + sagaId + '\'' +
+                ", status=" + status +
+                ", lastStep=" + lastStep +
+                ", stockLines='" + stockLines + '\'' +
+                ", referenceNumbers='" + referenceNumbers + '\'' +
+                ", stockReleased=" + stockReleased +
+                ", attempts=" + attempts +
+                ", nextAttemptAt=" + nextAttemptAt +
+                '}';
+    }
+}
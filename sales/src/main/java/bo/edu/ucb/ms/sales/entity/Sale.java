@@ -7,11 +7,13 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Sale")
+@Table(name = "Sale", indexes = @Index(name = "idx_sale_created_at", columnList = "created_at"))
 public class Sale {
     
+    // Pooled sequence instead of IDENTITY, so that Hibernate can batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_seq")
+    @SequenceGenerator(name = "sale_seq", sequenceName = "sale_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "sale_number", length = 20, unique = true, nullable = false)
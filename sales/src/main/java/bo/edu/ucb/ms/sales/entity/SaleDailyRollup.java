@@ -0,0 +1,72 @@
+package bo.edu.ucb.ms.sales.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * Sales aggregated per day (of createdAt), product and payment status. Maintained in the same
+ * transaction as every sale insert and payment status change (SaleRollupBl), so dashboard
+ * range queries read a few rows per day instead of scanning the Sale table.
+ */
+@Entity
+@Table(name = "sale_daily_rollup")
+public class SaleDailyRollup {
+
+    @EmbeddedId
+    private SaleDailyRollupId id;
+
+    @Column(name = "sale_count", nullable = false)
+    private Long saleCount;
+
+    @Column(name = "total_quantity", nullable = false)
+    private Long totalQuantity;
+
+    @Column(name = "total_amount", precision = 16, scale = 2, nullable = false)
+    private BigDecimal totalAmount;
+
+    // Default constructor
+    public SaleDailyRollup() {}
+
+    // Getters and Setters
+    public SaleDailyRollupId getId() {
+        return id;
+    }
+
+    public void setId(SaleDailyRollupId id) {
+        this.id = id;
+    }
+
+    public Long getSaleCount() {
+        return saleCount;
+    }
+
+    public void setSaleCount(Long saleCount) {
+        this.saleCount = saleCount;
+    }
+
+    public Long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public void setTotalQuantity(Long totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    @Override
+    public String toString() {
+        return "SaleDailyRollup{" +
+                "id=" + id +
+                ", saleCount=" + saleCount +
+                ", totalQuantity=" + totalQuantity +
+                ", totalAmount=" + totalAmount +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+package bo.edu.ucb.ms.sales.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Key of a sales rollup row: one row per day, product and payment status
+ */
+@Embeddable
+public class SaleDailyRollupId implements Serializable {
+
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate saleDay;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "payment_status", length = 20, nullable = false)
+    private String paymentStatus;
+
+    // Default constructor
+    public SaleDailyRollupId() {}
+
+    public SaleDailyRollupId(LocalDate saleDay, Integer productId, String paymentStatus) {
+        this.saleDay = saleDay;
+        this.productId = productId;
+        this.paymentStatus = paymentStatus;
+    }
+
+    // Getters and Setters
+    public LocalDate getSaleDay() {
+        return saleDay;
+    }
+
+    public void setSaleDay(LocalDate saleDay) {
+        this.saleDay = saleDay;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public String getPaymentStatus() {
+        return paymentStatus;
+    }
+
+    public void setPaymentStatus(String paymentStatus) {
+        this.paymentStatus = paymentStatus;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SaleDailyRollupId that)) {
+            return false;
+        }
+        return Objects.equals(saleDay, that.saleDay)
+                && Objects.equals(productId, that.productId)
+                && Objects.equals(paymentStatus, that.paymentStatus);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(saleDay, productId, paymentStatus);
+    }
+
+    @Override
+    public String toString() {
+        return "SaleDailyRollupId{" +
+                "saleDay=" + saleDay +
+                ", productId=" + productId +
+                ", paymentStatus='" + paymentStatus + '\'' +
+                '}';
+    }
+}
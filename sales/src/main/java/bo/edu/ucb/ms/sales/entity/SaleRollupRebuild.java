@@ -0,0 +1,53 @@
+package bo.edu.ucb.ms.sales.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Marks that the sale rollups were rebuilt from the Sale table. Written in the rebuild
+ * transaction: until it exists, the rollups may only hold deltas of recent sales.
+ */
+@Entity
+@Table(name = "sale_rollup_rebuild")
+public class SaleRollupRebuild {
+
+    @Id
+    @Column(name = "rollup", length = 50)
+    private String rollup;
+
+    @Column(name = "completed_at", nullable = false)
+    private LocalDateTime completedAt;
+
+    // Default constructor
+    public SaleRollupRebuild() {}
+
+    public SaleRollupRebuild(String rollup, LocalDateTime completedAt) {
+        this.rollup = rollup;
+        this.completedAt = completedAt;
+    }
+
+    // Getters and Setters
+    public String getRollup() {
+        return rollup;
+    }
+
+    public void setRollup(String rollup) {
+        this.rollup = rollup;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "SaleRollupRebuild{" +
+                "rollup='" + rollup + '\'' +
+                ", completedAt=" + completedAt +
+                '}';
+    }
+}
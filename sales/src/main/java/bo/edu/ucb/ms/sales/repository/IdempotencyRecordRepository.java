@@ -0,0 +1,60 @@
+package bo.edu.ucb.ms.sales.repository;
+
+import bo.edu.ucb.ms.sales.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Claims the key for this request; inserts nothing when another request already holds it
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_record (idempotency_key, request_fingerprint, status, created_at, updated_at) " +
+                   "VALUES (:key, :fingerprint, 'IN_PROGRESS', :now, :now) " +
+                   "ON CONFLICT (idempotency_key) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("key") String key,
+                       @Param("fingerprint") String fingerprint,
+                       @Param("now") LocalDateTime now);
+
+    /**
+     * Takes over a key left IN_PROGRESS by an instance that died before finishing the request
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.updatedAt = :now WHERE r.idempotencyKey = :key " +
+           "AND r.requestFingerprint = :fingerprint AND r.status = bo.edu.ucb.ms.sales.entity.IdempotencyRecord.Status.IN_PROGRESS " +
+           "AND r.updatedAt < :staleBefore")
+    int takeOverStale(@Param("key") String key,
+                      @Param("fingerprint") String fingerprint,
+                      @Param("now") LocalDateTime now,
+                      @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = bo.edu.ucb.ms.sales.entity.IdempotencyRecord.Status.COMPLETED, " +
+           "r.saleId = :saleId, r.updatedAt = :now " +
+           "WHERE r.idempotencyKey = :key")
+    int markCompleted(@Param("key") String key,
+                      @Param("saleId") Long saleId,
+                      @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key " +
+           "AND r.status = bo.edu.ucb.ms.sales.entity.IdempotencyRecord.Status.IN_PROGRESS")
+    int releaseInProgress(@Param("key") String key);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
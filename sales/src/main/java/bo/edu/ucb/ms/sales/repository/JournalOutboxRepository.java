@@ -0,0 +1,65 @@
+package bo.edu.ucb.ms.sales.repository;
+
+import bo.edu.ucb.ms.sales.entity.JournalOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface JournalOutboxRepository extends JpaRepository<JournalOutbox, Long> {
+
+    /**
+     * Transaction-scoped advisory lock: only one instance at a time claims a batch, so two relays
+     * never lease the same head of the outbox. Released at commit.
+     * @return false if another instance is claiming right now
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLockRelay(@Param("key") long key);
+
+    /**
+     * Leases the first batchSize pending rows in sale number order, unless one of them is still
+     * leased (a batch is in flight) or waiting for its next attempt: later rows never overtake
+     * earlier ones.
+     */
+    @Modifying
+    @Query(value = "WITH head AS (SELECT id, lease_until, next_attempt_at FROM journal_outbox " +
+                   "              WHERE status = 'PENDING' ORDER BY sale_number LIMIT :batchSize) " +
+                   "UPDATE journal_outbox SET lease_owner = :owner, lease_until = :leaseUntil " +
+                   "WHERE id IN (SELECT id FROM head) " +
+                   "  AND NOT EXISTS (SELECT 1 FROM head WHERE lease_until > :now OR next_attempt_at > :now)",
+           nativeQuery = true)
+    int claimBatch(@Param("owner") String owner,
+                   @Param("leaseUntil") LocalDateTime leaseUntil,
+                   @Param("now") LocalDateTime now,
+                   @Param("batchSize") int batchSize);
+
+    @Query("SELECT o FROM JournalOutbox o WHERE o.leaseOwner = :owner AND o.leaseUntil = :leaseUntil ORDER BY o.saleNumber")
+    List<JournalOutbox> findLeasedBatch(@Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Removes posted rows; a no-op for rows whose lease expired and went to another instance
+     */
+    @Modifying
+    @Query("DELETE FROM JournalOutbox o WHERE o.id IN :ids AND o.leaseOwner = :owner")
+    int deleteLeased(@Param("ids") List<Long> ids, @Param("owner") String owner);
+
+    @Modifying
+    @Query("UPDATE JournalOutbox o SET o.attempts = o.attempts + 1, o.lastError = :lastError, " +
+           "o.nextAttemptAt = :nextAttemptAt, o.leaseOwner = NULL, o.leaseUntil = NULL " +
+           "WHERE o.id IN :ids AND o.leaseOwner = :owner")
+    int releaseForRetry(@Param("ids") List<Long> ids,
+                        @Param("owner") String owner,
+                        @Param("lastError") String lastError,
+                        @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    @Modifying
+    @Query("UPDATE JournalOutbox o SET o.status = bo.edu.ucb.ms.sales.entity.JournalOutbox.Status.FAILED, " +
+           "o.attempts = o.attempts + 1, o.lastError = :lastError, o.leaseOwner = NULL, o.leaseUntil = NULL " +
+           "WHERE o.id = :id AND o.leaseOwner = :owner")
+    int markFailed(@Param("id") Long id, @Param("owner") String owner, @Param("lastError") String lastError);
+}
@@ -0,0 +1,62 @@
+package bo.edu.ucb.ms.sales.repository;
+
+import bo.edu.ucb.ms.sales.entity.SagaLog;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SagaLogRepository extends JpaRepository<SagaLog, Long> {
+
+    Optional<SagaLog> findBySagaId(String sagaId);
+
+    /**
+     * Leases up to batchSize sagas that need compensation: pending ones whose next attempt is due,
+     * plus in-progress ones that have not moved since staleBefore (their instance crashed).
+     * SKIP LOCKED lets several instances claim disjoint batches without waiting on each other.
+     */
+    @Modifying
+    @Query(value = "UPDATE saga_log SET lease_owner = :owner, lease_until = :leaseUntil " +
+                   "WHERE id IN (SELECT id FROM saga_log " +
+                   "             WHERE ((status = 'COMPENSATION_PENDING' AND next_attempt_at <= :now) " +
+                   "                    OR (status = 'IN_PROGRESS' AND updated_at < :staleBefore)) " +
+                   "               AND (lease_until IS NULL OR lease_until < :now) " +
+                   "             ORDER BY id LIMIT :batchSize FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int claimCompensationBatch(@Param("owner") String owner,
+                               @Param("leaseUntil") LocalDateTime leaseUntil,
+                               @Param("now") LocalDateTime now,
+                               @Param("staleBefore") LocalDateTime staleBefore,
+                               @Param("batchSize") int batchSize);
+
+    @Modifying
+    @Query("UPDATE SagaLog s SET s.status = :status, s.lastStep = :lastStep, s.updatedAt = :now WHERE s.id = :id")
+    int updateStatus(@Param("id") Long id,
+                     @Param("status") SagaLog.Status status,
+                     @Param("lastStep") SagaLog.Step lastStep,
+                     @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE SagaLog s SET s.status = :status, s.lastStep = :lastStep, s.updatedAt = :now WHERE s.id IN :ids")
+    int updateStatusBatch(@Param("ids") List<Long> ids,
+                          @Param("status") SagaLog.Status status,
+                          @Param("lastStep") SagaLog.Step lastStep,
+                          @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE SagaLog s SET s.status = :status, s.lastStep = :lastStep, s.lastError = :lastError, " +
+           "s.nextAttemptAt = :now, s.updatedAt = :now WHERE s.id = :id")
+    int updateStatusWithError(@Param("id") Long id,
+                              @Param("status") SagaLog.Status status,
+                              @Param("lastStep") SagaLog.Step lastStep,
+                              @Param("lastError") String lastError,
+                              @Param("now") LocalDateTime now);
+
+    @Query("SELECT s FROM SagaLog s WHERE s.leaseOwner = :owner AND s.leaseUntil = :leaseUntil ORDER BY s.id")
+    List<SagaLog> findLeasedBatch(@Param("owner") String owner, @Param("leaseUntil") LocalDateTime leaseUntil);
+}
@@ -0,0 +1,67 @@
+package bo.edu.ucb.ms.sales.repository;
+
+import bo.edu.ucb.ms.sales.dto.ProductSalesSummaryDto;
+import bo.edu.ucb.ms.sales.entity.SaleDailyRollup;
+import bo.edu.ucb.ms.sales.entity.SaleDailyRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SaleDailyRollupRepository extends JpaRepository<SaleDailyRollup, SaleDailyRollupId> {
+
+    /**
+     * Adds a delta (negative to subtract) to one rollup row, creating it if needed. Runs in the
+     * caller's transaction; concurrent writers to the same row are serialized by the row lock.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sale_daily_rollup (sale_day, product_id, payment_status, sale_count, total_quantity, total_amount) " +
+                   "VALUES (:saleDay, :productId, :paymentStatus, :saleCount, :totalQuantity, :totalAmount) " +
+                   "ON CONFLICT (sale_day, product_id, payment_status) DO UPDATE SET " +
+                   "sale_count = sale_daily_rollup.sale_count + EXCLUDED.sale_count, " +
+                   "total_quantity = sale_daily_rollup.total_quantity + EXCLUDED.total_quantity, " +
+                   "total_amount = sale_daily_rollup.total_amount + EXCLUDED.total_amount", nativeQuery = true)
+    int addDelta(@Param("saleDay") LocalDate saleDay,
+                 @Param("productId") Integer productId,
+                 @Param("paymentStatus") String paymentStatus,
+                 @Param("saleCount") long saleCount,
+                 @Param("totalQuantity") long totalQuantity,
+                 @Param("totalAmount") BigDecimal totalAmount);
+
+    /**
+     * Drops the deltas written before the rebuild; the rebuild counts those sales again
+     */
+    @Modifying
+    @Query(value = "DELETE FROM sale_daily_rollup", nativeQuery = true)
+    int deleteAllRows();
+
+    /**
+     * Blocks sale inserts and updates until the end of the transaction, so a rebuild sees
+     * every sale and no sale is counted twice. The mode conflicts with itself, so rebuilds of
+     * several instances starting together run one after the other.
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE sale IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockSales();
+
+    @Modifying
+    @Query(value = "INSERT INTO sale_daily_rollup (sale_day, product_id, payment_status, sale_count, total_quantity, total_amount) " +
+                   "SELECT CAST(created_at AS date), product_id, COALESCE(payment_status, 'pending'), " +
+                   "COUNT(*), COALESCE(SUM(quantity), 0), COALESCE(SUM(total_amount), 0) " +
+                   "FROM sale WHERE created_at IS NOT NULL " +
+                   "GROUP BY CAST(created_at AS date), product_id, COALESCE(payment_status, 'pending')", nativeQuery = true)
+    int rebuildFromSales();
+
+    @Query("SELECT new bo.edu.ucb.ms.sales.dto.ProductSalesSummaryDto(r.id.productId, SUM(r.saleCount), SUM(r.totalQuantity), " +
+           "SUM(r.totalAmount), SUM(CASE WHEN r.id.paymentStatus = 'paid' THEN r.totalAmount ELSE 0 END)) " +
+           "FROM SaleDailyRollup r WHERE r.id.saleDay >= :fromDay AND r.id.saleDay < :toDay " +
+           "GROUP BY r.id.productId")
+    List<ProductSalesSummaryDto> summarizeByProduct(@Param("fromDay") LocalDate fromDay,
+                                                    @Param("toDay") LocalDate toDay);
+}
@@ -1,15 +1,24 @@
 package bo.edu.ucb.ms.sales.repository;
 
+import bo.edu.ucb.ms.sales.dto.ProductSalesSummaryDto;
 import bo.edu.ucb.ms.sales.entity.Sale;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SaleRepository extends JpaRepository<Sale, Long> {
@@ -47,4 +56,54 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
 
     @Query("SELECT DISTINCT s.paymentStatus FROM Sale s")
     List<String> findDistinctPaymentStatuses();
-}
\ No newline at end of file
+
+    // Row lock for read-modify-write of the payment status (keeps the rollups exact)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Sale s WHERE s.id = :id")
+    Optional<Sale> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Raw per-product aggregation of [startDate, endDate); only used for the partial days at
+     * the edges of a dashboard range, the full days come from the rollups
+     */
+    @Query("SELECT new bo.edu.ucb.ms.sales.dto.ProductSalesSummaryDto(s.productId, COUNT(s), SUM(s.quantity), " +
+           "SUM(s.totalAmount), SUM(CASE WHEN s.paymentStatus = 'paid' THEN s.totalAmount ELSE 0 END)) " +
+           "FROM Sale s WHERE s.createdAt >= :startDate AND s.createdAt < :endDate " +
+           "GROUP BY s.productId")
+    List<ProductSalesSummaryDto> summarizeByProduct(@Param("startDate") LocalDateTime startDate,
+                                                    @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * One keyset page of the export: sales with ID greater than afterId, in ID order, read
+     * through a server-side cursor (fetch size rows per round trip) as read-only entities.
+     * Null filters are ignored (null dates are cast, PostgreSQL cannot type an untyped null).
+     * Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Sale s WHERE s.id > :afterId" +
+           " AND (:productId IS NULL OR s.productId = :productId)" +
+           " AND (:paymentStatus IS NULL OR s.paymentStatus = :paymentStatus)" +
+           " AND (CAST(:startDate AS LocalDateTime) IS NULL OR s.createdAt >= :startDate)" +
+           " AND (CAST(:endDate AS LocalDateTime) IS NULL OR s.createdAt < :endDate)" +
+           " ORDER BY s.id")
+    Stream<Sale> streamForExport(@Param("afterId") Long afterId,
+                                 @Param("productId") Integer productId,
+                                 @Param("paymentStatus") String paymentStatus,
+                                 @Param("startDate") LocalDateTime startDate,
+                                 @Param("endDate") LocalDateTime endDate,
+                                 Limit pageSize);
+
+    /**
+     * Moves sale_seq past the highest sale ID when existing rows are not covered by it (sales
+     * inserted with IDENTITY before the sequence existed). Never moves the sequence back.
+     * Pooled IDs are handed out up to the value nextval returns, so setval(MAX(id)) is enough.
+     * @return The new sequence value, or null if it was already ahead
+     */
+    @Transactional
+    @Query(value = "SELECT setval('sale_seq', m.max_id) FROM (SELECT MAX(id) AS max_id FROM sale) m " +
+                   "WHERE m.max_id > (SELECT CASE WHEN is_called THEN last_value ELSE 0 END FROM sale_seq)", nativeQuery = true)
+    Long advanceIdSequence();
+}
@@ -0,0 +1,9 @@
+package bo.edu.ucb.ms.sales.repository;
+
+import bo.edu.ucb.ms.sales.entity.SaleRollupRebuild;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SaleRollupRebuildRepository extends JpaRepository<SaleRollupRebuild, String> {
+}
@@ -1,18 +1,25 @@
 package bo.edu.ucb.ms.warehouse.api;
 
+import bo.edu.ucb.ms.warehouse.bl.ProductChangeEventBl;
 import bo.edu.ucb.ms.warehouse.bl.ProductStockBl;
 import bo.edu.ucb.ms.warehouse.dto.ProductDto;
+import bo.edu.ucb.ms.warehouse.dto.StockLineDto;
+import bo.edu.ucb.ms.warehouse.dto.StockReservationDto;
 import bo.edu.ucb.ms.warehouse.entity.Product;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/warehouse")
@@ -23,6 +30,27 @@ public class WarehouseApi {
     @Autowired
     private ProductStockBl productStockBl;
 
+    @Autowired
+    private ProductChangeEventBl productChangeEventBl;
+
+    /**
+     * Server-sent events with every committed stock or product change of this instance.
+     * Reconnecting subscribers send Last-Event-ID to resume without gaps.
+     */
+    @GetMapping(value = "/products/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamProductEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        logger.info("=== WAREHOUSE API ===");
+        logger.info("GET /api/warehouse/products/events called with Last-Event-ID: {}", lastEventId);
+
+        try {
+            return ResponseEntity.ok(productChangeEventBl.subscribe(lastEventId));
+        } catch (IllegalStateException e) {
+            logger.warn("Event stream subscription rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     @GetMapping("/products/{productId}")
     public ResponseEntity<ProductDto> getProduct(@PathVariable Integer productId) {
         logger.info("=== WAREHOUSE API ===");
@@ -117,6 +145,46 @@ public class WarehouseApi {
         }
     }
 
+    @PostMapping("/products/{productId}/stock/reservations")
+    public ResponseEntity<StockReservationDto> reserveAndDescribe(
+            @PathVariable Integer productId,
+            @RequestParam Integer quantity) {
+
+        logger.info("=== WAREHOUSE API ===");
+        logger.info("POST /api/warehouse/products/{}/stock/reservations called with quantity: {}",
+                   productId, quantity);
+
+        try {
+            // Validation, reservation and product snapshot in one atomic call
+            Product updatedProduct = productStockBl.reserveStock(productId, quantity);
+
+            StockReservationDto reservationDto = new StockReservationDto(
+                updatedProduct.getId(),
+                updatedProduct.getName(),
+                updatedProduct.getPrice(),
+                quantity,
+                updatedProduct.getStockQuantity()
+            );
+
+            logger.info("Stock reserved successfully: {}", reservationDto);
+            return ResponseEntity.ok(reservationDto);
+
+        } catch (IllegalStateException e) {
+            logger.warn("Insufficient stock for reservation: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            if (e.getMessage().contains("not found")) {
+                logger.warn("Product not found for reservation: {}", productId);
+                return ResponseEntity.notFound().build();
+            }
+            logger.warn("Invalid parameters for stock reservation: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error reserving stock for product: {}", productId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @PostMapping("/products/{productId}/stock/release")
     public ResponseEntity<ProductDto> releaseStock(
             @PathVariable Integer productId,
@@ -148,6 +216,70 @@ public class WarehouseApi {
         }
     }
 
+    @PostMapping("/stock/reservations/batch")
+    public ResponseEntity<List<StockReservationDto>> reserveStockBatch(
+            @RequestBody @Valid List<StockLineDto> lines) {
+
+        logger.info("=== WAREHOUSE API ===");
+        logger.info("POST /api/warehouse/stock/reservations/batch called with {} lines",
+                   lines != null ? lines.size() : 0);
+
+        try {
+            List<StockReservationDto> reservations = productStockBl.reserveStockBatch(lines);
+
+            logger.info("Batch stock reserved successfully: {} products", reservations.size());
+            return ResponseEntity.ok(reservations);
+
+        } catch (IllegalStateException e) {
+            logger.warn("Insufficient stock for batch reservation: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            if (e.getMessage().contains("not found")) {
+                logger.warn("Product not found for batch reservation: {}", e.getMessage());
+                return ResponseEntity.notFound().build();
+            }
+            logger.warn("Invalid parameters for batch stock reservation: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error reserving stock batch", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping("/stock/release/batch")
+    public ResponseEntity<List<ProductDto>> releaseStockBatch(
+            @RequestBody @Valid List<StockLineDto> lines,
+            @RequestHeader(value = "Idempotency-Key", required = false) String releaseKey) {
+
+        logger.info("=== WAREHOUSE API ===");
+        logger.info("POST /api/warehouse/stock/release/batch called with {} lines, release key: {}",
+                   lines != null ? lines.size() : 0, releaseKey);
+
+        try {
+            List<ProductDto> productDtos = productStockBl.releaseStockBatch(lines, releaseKey).stream()
+                    .map(product -> {
+                        ProductDto productDto = new ProductDto(
+                            product.getName(),
+                            product.getPrice(),
+                            product.getStockQuantity()
+                        );
+                        productDto.setId(product.getId());
+                        return productDto;
+                    })
+                    .collect(Collectors.toList());
+
+            logger.info("Batch stock released successfully: {} products", productDtos.size());
+            return ResponseEntity.ok(productDtos);
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid parameters for batch stock release: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error releasing stock batch", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @PutMapping("/products/{productId}/stock")
     public ResponseEntity<ProductDto> updateStock(
             @PathVariable Integer productId,
@@ -0,0 +1,292 @@
+package bo.edu.ucb.ms.warehouse.bl;
+
+import bo.edu.ucb.ms.warehouse.dto.ProductChangeEventDto;
+import bo.edu.ucb.ms.warehouse.entity.Product;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Stream of product change events (server-sent events). Stock and product changes are
+ * published only after their transaction commits, and get a sequence number that increases
+ * by one per event. The last buffer-size events are kept in memory so a subscriber that
+ * reconnects with Last-Event-ID ("streamId:sequence") receives exactly what it missed. If
+ * that is no longer possible (events dropped from the buffer, or the instance restarted and
+ * the stream ID changed), it receives a RESET event and continues from the current sequence.
+ *
+ * A single dispatcher thread writes to all subscribers, so events reach each one in sequence
+ * order and a slow subscriber never blocks the transactions that publish.
+ */
+@Service
+public class ProductChangeEventBl {
+
+    // Changes on every start, sequences of a previous run cannot be resumed
+    private final String streamId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Object lock = new Object();
+
+    private final Deque<ProductChangeEventDto> buffer = new ArrayDeque<>();
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private long lastSequence;
+
+    @Value("${warehouse.events.buffer-size:10000}")
+    private int bufferSize;
+
+    @Value("${warehouse.events.max-subscribers:100}")
+    private int maxSubscribers;
+
+    @Value("${warehouse.events.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${warehouse.events.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    private Thread dispatcherThread;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        dispatcherThread = new Thread(this::runDispatcher, "product-event-dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+        System.out.println("Product change event stream started with stream ID: " + streamId);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        dispatcherThread.join(heartbeatMs);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    /**
+     * Publishes the current state of the product once the surrounding transaction commits.
+     * Nothing is published if it rolls back. Without a transaction it is published at once.
+     */
+    public void publishAfterCommit(String type, Product product) {
+        publishAfterCommit(type, List.of(product));
+    }
+
+    public void publishAfterCommit(String type, List<Product> products) {
+        // Snapshot now: the entities may change or be detached by the time the commit completes
+        List<ProductChangeEventDto> events = new ArrayList<>();
+        for (Product product : products) {
+            events.add(toEvent(type, product));
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(events);
+                }
+            });
+        } else {
+            append(events);
+        }
+    }
+
+    /**
+     * Registers a subscriber. lastEventId is the Last-Event-ID header of a reconnecting
+     * subscriber, or null for a new one (which gets a RESET with the current position first).
+     * @throws IllegalStateException if max-subscribers are already connected
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber;
+
+        synchronized (lock) {
+            if (subscribers.size() >= maxSubscribers) {
+                throw new IllegalStateException("Too many event stream subscribers: " + subscribers.size());
+            }
+            subscriber = new Subscriber(emitter, resumePoint(lastEventId));
+            subscribers.add(subscriber);
+            lock.notifyAll();
+        }
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        System.out.println("Event stream subscriber connected (resume after sequence " + subscriber.lastSent
+                + "), subscribers: " + subscribers.size());
+        return emitter;
+    }
+
+    private void append(List<ProductChangeEventDto> events) {
+        synchronized (lock) {
+            for (ProductChangeEventDto event : events) {
+                event.setSequence(++lastSequence);
+                buffer.addLast(event);
+                if (buffer.size() > bufferSize) {
+                    buffer.removeFirst();
+                }
+            }
+            lock.notifyAll();
+        }
+    }
+
+    // Sequence after which the subscriber resumes; -1 forces a RESET
+    private long resumePoint(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return -1;
+        }
+
+        int separator = lastEventId.lastIndexOf(':');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(streamId)) {
+            return -1;
+        }
+
+        try {
+            long sequence = Long.parseLong(lastEventId.substring(separator + 1));
+            return sequence >= 0 && sequence <= lastSequence ? sequence : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void runDispatcher() {
+        while (running) {
+            List<ProductChangeEventDto> events;
+            long oldest;
+            long latest;
+            synchronized (lock) {
+                if (!hasUndelivered()) {
+                    try {
+                        lock.wait(heartbeatMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                oldest = buffer.isEmpty() ? lastSequence + 1 : buffer.peekFirst().getSequence();
+                latest = lastSequence;
+                events = eventsAfter(slowestSubscriber(oldest));
+            }
+
+            for (Subscriber subscriber : subscribers) {
+                deliver(subscriber, events, oldest, latest);
+            }
+        }
+    }
+
+    private boolean hasUndelivered() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.lastSent < lastSequence) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Subscribers too far behind get a RESET instead of old events, they do not count
+    private long slowestSubscriber(long oldest) {
+        long slowest = lastSequence;
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.lastSent >= oldest - 1) {
+                slowest = Math.min(slowest, subscriber.lastSent);
+            }
+        }
+        return slowest;
+    }
+
+    // Only the tail of the buffer that some subscriber still needs, oldest first
+    private List<ProductChangeEventDto> eventsAfter(long sequence) {
+        List<ProductChangeEventDto> events = new ArrayList<>();
+        Iterator<ProductChangeEventDto> newestFirst = buffer.descendingIterator();
+        while (newestFirst.hasNext()) {
+            ProductChangeEventDto event = newestFirst.next();
+            if (event.getSequence() <= sequence) {
+                break;
+            }
+            events.add(event);
+        }
+        Collections.reverse(events);
+        return events;
+    }
+
+    private void deliver(Subscriber subscriber, List<ProductChangeEventDto> events, long oldest, long latest) {
+        try {
+            if (subscriber.lastSent < oldest - 1) {
+                ProductChangeEventDto reset = new ProductChangeEventDto();
+                reset.setSequence(latest);
+                reset.setType(ProductChangeEventDto.RESET);
+                reset.setOccurredAt(LocalDateTime.now());
+                send(subscriber, reset);
+            }
+
+            for (ProductChangeEventDto event : events) {
+                if (event.getSequence() > subscriber.lastSent) {
+                    send(subscriber, event);
+                }
+            }
+
+            if (System.currentTimeMillis() - subscriber.lastActivity >= heartbeatMs) {
+                // Keeps proxies from closing an idle stream and detects disconnected subscribers
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                subscriber.lastActivity = System.currentTimeMillis();
+            }
+        } catch (IOException | IllegalStateException e) {
+            System.out.println("Event stream subscriber disconnected: " + e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    private void send(Subscriber subscriber, ProductChangeEventDto event) throws IOException {
+        subscriber.emitter.send(SseEmitter.event()
+                .id(streamId + ":" + event.getSequence())
+                .name(event.getType())
+                .data(event));
+        subscriber.lastSent = event.getSequence();
+        subscriber.lastActivity = System.currentTimeMillis();
+    }
+
+    private ProductChangeEventDto toEvent(String type, Product product) {
+        ProductChangeEventDto event = new ProductChangeEventDto();
+        event.setType(type);
+        event.setProductId(product.getId());
+        event.setName(product.getName());
+        event.setPrice(product.getPrice());
+        event.setStockQuantity(product.getStockQuantity());
+        event.setOccurredAt(LocalDateTime.now());
+        return event;
+    }
+
+    private static class Subscriber {
+
+        private final SseEmitter emitter;
+
+        // Only written by the dispatcher thread
+        private volatile long lastSent;
+
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private Subscriber(SseEmitter emitter, long lastSent) {
+            this.emitter = emitter;
+            this.lastSent = lastSent;
+        }
+    }
+}
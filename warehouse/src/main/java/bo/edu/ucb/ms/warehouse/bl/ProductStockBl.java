@@ -5,14 +5,29 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import bo.edu.ucb.ms.warehouse.dto.ProductChangeEventDto;
+import bo.edu.ucb.ms.warehouse.dto.StockLineDto;
+import bo.edu.ucb.ms.warehouse.dto.StockReservationDto;
 import bo.edu.ucb.ms.warehouse.entity.Product;
 import bo.edu.ucb.ms.warehouse.repository.ProductRepository;
+import bo.edu.ucb.ms.warehouse.repository.StockReleaseRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 public class ProductStockBl {
     
     @Autowired
     private ProductRepository productRepository;
+
+    @Autowired
+    private ProductChangeEventBl productChangeEventBl;
+
+    @Autowired
+    private StockReleaseRepository stockReleaseRepository;
     
     @Transactional
     public Product getProductById(Integer id) {
@@ -65,7 +80,9 @@ public class ProductStockBl {
         }
         
         // Save and return the updated product
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        productChangeEventBl.publishAfterCommit(ProductChangeEventDto.PRODUCT_UPDATED, savedProduct);
+        return savedProduct;
     }
     
     // MICROSERVICES-ONLY METHODS (NOT IN MONOLITH) - Required for SAGA pattern
@@ -92,22 +109,28 @@ public class ProductStockBl {
         return hasStock;
     }
 
+    /**
+     * Reserves stock with a single conditional UPDATE (stock >= quantity), so concurrent
+     * reservations on the same product cannot oversell. The product row is read back once,
+     * inside the same transaction, to return the new stock.
+     * @throws IllegalArgumentException if the parameters are invalid or the product does not exist
+     * @throws IllegalStateException if there is not enough stock available
+     */
     @Transactional
     public Product reserveStock(Integer productId, Integer quantity) {
         System.out.println("=== WAREHOUSE SERVICE - MICROSERVICES ONLY ===");
         System.out.println("ProductStockBl.reserveStock called with productId: " + productId + " and quantity: " + quantity);
 
-        if (!hasAvailableStock(productId, quantity)) {
-            System.out.println("ERROR: Insufficient stock for product id: " + productId + ", required: " + quantity);
-            throw new IllegalStateException("Insufficient stock available");
+        validateStockMovement(productId, quantity);
+
+        if (productRepository.decrementStockIfAvailable(productId, quantity) == 0) {
+            throw reservationFailure(productId, quantity);
         }
 
-        Product product = getProductById(productId);
-        product.setStockQuantity(product.getStockQuantity() - quantity);
-        
-        Product updatedProduct = updateProductStock(product);
+        Product updatedProduct = productRepository.findById(productId).orElseThrow();
         System.out.println("Stock reserved successfully for product: " + updatedProduct);
-        
+        productChangeEventBl.publishAfterCommit(ProductChangeEventDto.STOCK_RESERVED, updatedProduct);
+
         return updatedProduct;
     }
 
@@ -116,17 +139,131 @@ public class ProductStockBl {
         System.out.println("=== WAREHOUSE SERVICE - MICROSERVICES ONLY ===");
         System.out.println("ProductStockBl.releaseStock called with productId: " + productId + " and quantity: " + quantity);
 
-        Product product = getProductById(productId);
-        if (product == null) {
+        validateStockMovement(productId, quantity);
+
+        if (productRepository.incrementStock(productId, quantity) == 0) {
             System.out.println("ERROR: Cannot release stock for non-existent product: " + productId);
             throw new IllegalArgumentException("Product not found");
         }
 
-        product.setStockQuantity(product.getStockQuantity() + quantity);
-        
-        Product updatedProduct = updateProductStock(product);
+        Product updatedProduct = productRepository.findById(productId).orElseThrow();
         System.out.println("Stock released successfully for product: " + updatedProduct);
-        
+        productChangeEventBl.publishAfterCommit(ProductChangeEventDto.STOCK_RELEASED, updatedProduct);
+
         return updatedProduct;
     }
+
+    /**
+     * Reserves stock for several products in one transaction. Rows are locked in ascending
+     * product ID order, so concurrent carts cannot deadlock each other. If any line cannot
+     * be reserved, the whole batch is rolled back.
+     * @param lines Lines to reserve; lines for the same product are merged
+     * @return One reservation per product, in ascending product ID order
+     */
+    @Transactional
+    public List<StockReservationDto> reserveStockBatch(List<StockLineDto> lines) {
+        System.out.println("=== WAREHOUSE SERVICE - MICROSERVICES ONLY ===");
+        System.out.println("ProductStockBl.reserveStockBatch called with " + (lines != null ? lines.size() : 0) + " lines");
+
+        Map<Integer, Integer> quantities = mergeStockLines(lines);
+
+        for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+            if (productRepository.decrementStockIfAvailable(line.getKey(), line.getValue()) == 0) {
+                throw reservationFailure(line.getKey(), line.getValue());
+            }
+        }
+
+        List<Product> reservedProducts = findAllSorted(quantities);
+        List<StockReservationDto> reservations = new ArrayList<>();
+        for (Product product : reservedProducts) {
+            reservations.add(new StockReservationDto(
+                product.getId(),
+                product.getName(),
+                product.getPrice(),
+                quantities.get(product.getId()),
+                product.getStockQuantity()
+            ));
+        }
+
+        System.out.println("Stock reserved successfully for " + reservations.size() + " products");
+        productChangeEventBl.publishAfterCommit(ProductChangeEventDto.STOCK_RESERVED, reservedProducts);
+        return reservations;
+    }
+
+    /**
+     * Releases stock for several products in one transaction, locking rows in ascending product ID order
+     * @param lines Lines to release; lines for the same product are merged
+     * @param releaseKey Optional key of the release; a release already applied with the same key
+     *                   is not applied again, so the caller can safely retry it
+     * @return The updated products, in ascending product ID order
+     */
+    @Transactional
+    public List<Product> releaseStockBatch(List<StockLineDto> lines, String releaseKey) {
+        System.out.println("=== WAREHOUSE SERVICE - MICROSERVICES ONLY ===");
+        System.out.println("ProductStockBl.releaseStockBatch called with " + (lines != null ? lines.size() : 0) + " lines");
+
+        Map<Integer, Integer> quantities = mergeStockLines(lines);
+
+        if (releaseKey != null && !releaseKey.isBlank() && stockReleaseRepository.insertIfAbsent(releaseKey) == 0) {
+            System.out.println("Stock release " + releaseKey + " was already applied, not releasing again");
+            return findAllSorted(quantities);
+        }
+
+        for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+            if (productRepository.incrementStock(line.getKey(), line.getValue()) == 0) {
+                System.out.println("ERROR: Cannot release stock for non-existent product: " + line.getKey());
+                throw new IllegalArgumentException("Product not found");
+            }
+        }
+
+        List<Product> updatedProducts = findAllSorted(quantities);
+        System.out.println("Stock released successfully for " + updatedProducts.size() + " products");
+        productChangeEventBl.publishAfterCommit(ProductChangeEventDto.STOCK_RELEASED, updatedProducts);
+        return updatedProducts;
+    }
+
+    // Merges lines per product in a sorted map, which defines the row locking order
+    private Map<Integer, Integer> mergeStockLines(List<StockLineDto> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("Stock lines cannot be null or empty");
+        }
+
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (StockLineDto line : lines) {
+            if (line == null) {
+                throw new IllegalArgumentException("Stock line cannot be null");
+            }
+            validateStockMovement(line.getProductId(), line.getQuantity());
+            quantities.merge(line.getProductId(), line.getQuantity(), Math::addExact);
+        }
+        return quantities;
+    }
+
+    private List<Product> findAllSorted(Map<Integer, Integer> quantities) {
+        List<Product> products = new ArrayList<>(productRepository.findAllById(quantities.keySet()));
+        products.sort((a, b) -> a.getId().compareTo(b.getId()));
+        return products;
+    }
+
+    // Slow path only: finds out why a conditional decrement did not match
+    private RuntimeException reservationFailure(Integer productId, Integer quantity) {
+        Product product = productRepository.findById(productId).orElse(null);
+        if (product == null) {
+            System.out.println("ERROR: Cannot reserve stock for non-existent product: " + productId);
+            return new IllegalArgumentException("Product not found");
+        }
+        System.out.println("ERROR: Insufficient stock for product id: " + productId + ", required: " + quantity);
+        return new IllegalStateException("Insufficient stock available for product " + productId
+                + ". Required: " + quantity + ", Available: " + product.getStockQuantity());
+    }
+
+    private void validateStockMovement(Integer productId, Integer quantity) {
+        if (productId == null) {
+            throw new IllegalArgumentException("Product ID cannot be null");
+        }
+
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package bo.edu.ucb.ms.warehouse.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionTimedOutException;
+
+/**
+ * JPA transaction manager that caps every transaction timeout at the remaining time budget of
+ * the current request. Hibernate turns the transaction timeout into JDBC statement timeouts,
+ * so queries for a caller that gave up are cancelled by the database instead of running on.
+ */
+public class DeadlineJpaTransactionManager extends JpaTransactionManager {
+
+    public DeadlineJpaTransactionManager(EntityManagerFactory entityManagerFactory) {
+        super(entityManagerFactory);
+    }
+
+    @Override
+    protected int determineTimeout(TransactionDefinition definition) {
+        int timeout = super.determineTimeout(definition);
+        Long deadlineNanos = RequestDeadline.current();
+        if (deadlineNanos == null) {
+            return timeout;
+        }
+
+        long remainingMs = RequestDeadline.remainingMillis(deadlineNanos);
+        if (remainingMs <= 0) {
+            throw new TransactionTimedOutException("Deadline exceeded before the transaction started");
+        }
+        // JDBC timeouts have second granularity: round up, never below one second
+        int remainingSeconds = (int) Math.min(Integer.MAX_VALUE, (remainingMs + 999) / 1000);
+        return timeout == TransactionDefinition.TIMEOUT_DEFAULT ? remainingSeconds : Math.min(timeout, remainingSeconds);
+    }
+}
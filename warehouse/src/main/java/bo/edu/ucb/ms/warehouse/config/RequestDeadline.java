@@ -0,0 +1,41 @@
+package bo.edu.ucb.ms.warehouse.config;
+
+/**
+ * Remaining time budget the caller (sales) sent in the X-Deadline-Remaining-Ms header. Work on
+ * behalf of a request whose caller has already given up is cut short with it.
+ */
+public final class RequestDeadline {
+
+    public static final String HEADER = "X-Deadline-Remaining-Ms";
+
+    // Absolute deadline in System.nanoTime() terms, null when the request carried none
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static void start(long budgetMs) {
+        DEADLINE_NANOS.set(System.nanoTime() + budgetMs * 1_000_000L);
+    }
+
+    public static void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    /**
+     * Deadline of the current thread, or null if it has none
+     */
+    public static Long current() {
+        return DEADLINE_NANOS.get();
+    }
+
+    /**
+     * Milliseconds left of the given deadline (negative once spent), Long.MAX_VALUE if null
+     */
+    public static long remainingMillis(Long deadlineNanos) {
+        if (deadlineNanos == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.floorDiv(deadlineNanos - System.nanoTime(), 1_000_000L);
+    }
+}
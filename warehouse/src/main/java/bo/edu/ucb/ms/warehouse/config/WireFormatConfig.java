@@ -0,0 +1,24 @@
+package bo.edu.ucb.ms.warehouse.config;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary wire format for internal callers. Requests and responses are read and written as
+ * Smile (binary JSON, application/x-jackson-smile) when the caller asks for it through
+ * Content-Type and Accept, as sales does; everyone else, including clients behind the
+ * gateway, keeps getting JSON, which stays ahead of Smile in content negotiation.
+ * The Smile mapper is built from Boot's Jackson builder, so dates and numbers are mapped
+ * exactly as in JSON (BigDecimal amounts travel as exact binary decimals).
+ */
+@Configuration
+public class WireFormatConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,101 @@
+package bo.edu.ucb.ms.warehouse.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO class for a product change event of the warehouse event stream
+ * Carries the product state committed by the change; sequence increases by one per event
+ */
+public class ProductChangeEventDto {
+
+    // Event types
+    public static final String STOCK_RESERVED = "STOCK_RESERVED";
+    public static final String STOCK_RELEASED = "STOCK_RELEASED";
+    public static final String PRODUCT_UPDATED = "PRODUCT_UPDATED";
+    // Subscriber missed events that are no longer buffered (or connected without Last-Event-ID):
+    // drop everything derived from earlier events and continue from this sequence
+    public static final String RESET = "RESET";
+
+    private Long sequence;
+    private String type;
+    private Integer productId;
+    private String name;
+    private BigDecimal price;
+    private Integer stockQuantity;
+    private LocalDateTime occurredAt;
+
+    // Default constructor
+    public ProductChangeEventDto() {}
+
+    // Getters and Setters
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public void setStockQuantity(Integer stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(LocalDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductChangeEventDto{" +
+                "sequence=" + sequence +
+                ", type='" + type + '\'' +
+                ", productId=" + productId +
+                ", name='" + name + '\'' +
+                ", price=" + price +
+                ", stockQuantity=" + stockQuantity +
+                ", occurredAt=" + occurredAt +
+                '}';
+    }
+}
@@ -0,0 +1,82 @@
+package bo.edu.ucb.ms.warehouse.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO class returned by a stock reservation
+ * Snapshot of the product taken in the same transaction as the reservation
+ */
+public class StockReservationDto {
+
+    private Integer productId;
+    private String name;
+    private BigDecimal price;
+    private Integer reservedQuantity;
+    private Integer remainingStock;
+
+    // Default constructor
+    public StockReservationDto() {}
+
+    // Constructor with all fields
+    public StockReservationDto(Integer productId, String name, BigDecimal price,
+                               Integer reservedQuantity, Integer remainingStock) {
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.reservedQuantity = reservedQuantity;
+        this.remainingStock = remainingStock;
+    }
+
+    // Getters and Setters
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public Integer getReservedQuantity() {
+        return reservedQuantity;
+    }
+
+    public void setReservedQuantity(Integer reservedQuantity) {
+        this.reservedQuantity = reservedQuantity;
+    }
+
+    public Integer getRemainingStock() {
+        return remainingStock;
+    }
+
+    public void setRemainingStock(Integer remainingStock) {
+        this.remainingStock = remainingStock;
+    }
+
+    @Override
+    public String toString() {
+        return "StockReservationDto{" +
+                "productId=" + productId +
+                ", name='" + name + '\'' +
+                ", price=" + price +
+                ", reservedQuantity=" + reservedQuantity +
+                ", remainingStock=" + remainingStock +
+                '}';
+    }
+}
@@ -0,0 +1,48 @@
+package bo.edu.ucb.ms.warehouse.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Release key of a stock release already applied. A release sent again with the same key
+ * (a retried compensation) finds its row here and does not put the stock back twice.
+ */
+@Entity
+@Table(name = "stock_release")
+public class StockRelease {
+
+    @Id
+    @Column(name = "release_key", length = 100)
+    private String releaseKey;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Default constructor
+    public StockRelease() {}
+
+    // Getters and Setters
+    public String getReleaseKey() {
+        return releaseKey;
+    }
+
+    public void setReleaseKey(String releaseKey) {
+        this.releaseKey = releaseKey;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "StockRelease{" +
+                "releaseKey='" + releaseKey + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
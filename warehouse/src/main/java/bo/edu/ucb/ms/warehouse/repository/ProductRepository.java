@@ -2,6 +2,9 @@ package bo.edu.ucb.ms.warehouse.repository;
 
 import bo.edu.ucb.ms.warehouse.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -10,4 +13,22 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     Product findByName(String name);
     
     Product findBySku(String sku);
-}
\ No newline at end of file
+
+    /**
+     * Conditional decrement: only succeeds when there is enough stock, so two
+     * concurrent reservations can never take the stock below zero.
+     * @return 1 if the stock was reserved, 0 if the product does not exist or has insufficient stock
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE product SET stock_quantity = stock_quantity - :quantity, updated_at = NOW() " +
+                   "WHERE id = :productId AND stock_quantity >= :quantity", nativeQuery = true)
+    int decrementStockIfAvailable(@Param("productId") Integer productId, @Param("quantity") Integer quantity);
+
+    /**
+     * @return 1 if the stock was released, 0 if the product does not exist
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE product SET stock_quantity = stock_quantity + :quantity, updated_at = NOW() " +
+                   "WHERE id = :productId", nativeQuery = true)
+    int incrementStock(@Param("productId") Integer productId, @Param("quantity") Integer quantity);
+}
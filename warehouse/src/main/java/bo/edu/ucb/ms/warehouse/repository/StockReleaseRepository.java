@@ -0,0 +1,22 @@
+package bo.edu.ucb.ms.warehouse.repository;
+
+import bo.edu.ucb.ms.warehouse.entity.StockRelease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockReleaseRepository extends JpaRepository<StockRelease, String> {
+
+    /**
+     * Records the release key unless it is already there. A concurrent release with the same key
+     * waits on the row lock of the first one and then sees the duplicate.
+     * @return 1 if the key is new, 0 if that release was already applied
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO stock_release (release_key, created_at) VALUES (:releaseKey, NOW())",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("releaseKey") String releaseKey);
+}